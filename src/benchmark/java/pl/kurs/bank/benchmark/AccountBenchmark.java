@@ -0,0 +1,45 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.kurs.bank.account.model.Account;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    private Account account;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        account = new Account();
+        account.setId(1L);
+        account.setType(Account.Type.REGULAR);
+        account.setBalanceMinor(1_000_000_000L);
+    }
+
+    @Benchmark
+    public long deposit() {
+        account.deposit(1234L);
+        return account.getBalanceMinor();
+    }
+
+    @Benchmark
+    public long depositAndWithdraw() {
+        account.deposit(1234L);
+        account.withdraw(1234L);
+        return account.getBalanceMinor();
+    }
+
+    @Benchmark
+    public boolean lockAndUnlock() {
+        account.lock();
+        account.unlock();
+        return account.isLocked();
+    }
+}
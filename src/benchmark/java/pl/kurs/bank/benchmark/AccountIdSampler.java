@@ -0,0 +1,53 @@
+package pl.kurs.bank.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks one of the given account ids either uniformly or following a Zipf distribution, where the k-th id
+ * is chosen with probability proportional to 1 / k^s, so a handful of accounts receive most of the traffic.
+ */
+public class AccountIdSampler {
+
+    private final long[] ids;
+    private final double[] cumulative;
+
+    private AccountIdSampler(long[] ids, double[] cumulative) {
+        this.ids = ids;
+        this.cumulative = cumulative;
+    }
+
+    public static AccountIdSampler uniform(long[] ids) {
+        return new AccountIdSampler(ids, null);
+    }
+
+    public static AccountIdSampler zipf(long[] ids, double exponent) {
+        double[] cumulative = new double[ids.length];
+        double sum = 0;
+        for (int i = 0; i < ids.length; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+        return new AccountIdSampler(ids, cumulative);
+    }
+
+    public static AccountIdSampler of(String distribution, long[] ids) {
+        return switch (distribution) {
+            case "uniform" -> uniform(ids);
+            case "zipf" -> zipf(ids, 1.1);
+            default -> throw new IllegalArgumentException("Unknown distribution " + distribution);
+        };
+    }
+
+    public long next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (cumulative == null) {
+            return ids[random.nextInt(ids.length)];
+        }
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return ids[Math.min(index >= 0 ? index : -index - 1, ids.length - 1)];
+    }
+}
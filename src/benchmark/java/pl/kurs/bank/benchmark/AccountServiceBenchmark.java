@@ -0,0 +1,98 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountService against an embedded H2 database. Every write strategy is measured at several thread counts
+ * with uniform and Zipf-skewed account selection; the skewed case shows how a strategy copes with hot accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    @Param({"pessimistic", "optimistic", "partitioned", "journal"})
+    public String writeMode;
+
+    @Param({"uniform", "zipf"})
+    public String distribution;
+
+    @Param({"1000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private AccountIdSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start("account-service", "--bank.account.write-mode=" + writeMode,
+                "--bank.account.journal.directory=" + Files.createTempDirectory("bank-journal"));
+        accountService = context.getBean(AccountService.class);
+        sampler = AccountIdSampler.of(distribution, BenchmarkApplication.createAccounts(
+                context.getBean(AccountRepository.class), accounts, 1_000_000_000L));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void mixed1Thread() {
+        mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void mixed8Threads() {
+        mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void mixed32Threads() {
+        mixedOperation();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object get1Thread() {
+        return accountService.getAccount(sampler.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object get8Threads() {
+        return accountService.getAccount(sampler.next());
+    }
+
+    private void mixedOperation() {
+        long accountId = sampler.next();
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            DepositCashCommand command = new DepositCashCommand();
+            command.setAccountId(accountId);
+            command.setAmountMinor(100L);
+            accountService.deposit(command);
+        } else {
+            WithdrawCashCommand command = new WithdrawCashCommand();
+            command.setAccountId(accountId);
+            command.setAmountMinor(100L);
+            accountService.withdraw(command);
+        }
+    }
+}
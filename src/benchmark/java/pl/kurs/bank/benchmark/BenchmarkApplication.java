@@ -0,0 +1,53 @@
+package pl.kurs.bank.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared bootstrap for benchmarks that need the application running on an in-memory database.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String database, String... args) {
+        return new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments(database, args));
+    }
+
+    static ConfigurableApplicationContext startWeb(String database, String... args) {
+        return new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.SERVLET)
+                .run(arguments(database, args));
+    }
+
+    static String[] arguments(String database, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(args));
+        return arguments.toArray(String[]::new);
+    }
+
+    static long[] createAccounts(AccountRepository accountRepository, int count, long balance) {
+        List<Account> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account account = new Account();
+            account.setType(i % 2 == 0 ? Account.Type.REGULAR : Account.Type.SAVINGS);
+            account.setBalanceMinor(balance);
+            created.add(account);
+        }
+        return accountRepository.saveAll(created).stream().mapToLong(Account::getId).toArray();
+    }
+}
@@ -0,0 +1,69 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountCreationService;
+import pl.kurs.bank.common.dto.BulkCreateProgressDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts created per second: one insert and commit per account against the NDJSON bulk path, which batches the
+ * inserts of a chunk and commits once per chunk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(1)
+public class BulkCreateBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private AccountCreationService accountCreationService;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("bulk-create");
+        accountRepository = context.getBean(AccountRepository.class);
+        accountCreationService = context.getBean(AccountCreationService.class);
+        ndjson = "{\"type\":\"REGULAR\",\"balance\":100}\n".repeat(ACCOUNTS).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS)
+    public void rowAtATime() {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account();
+            account.setType(Account.Type.REGULAR);
+            account.setBalanceMinor(10_000L);
+            accountRepository.save(account);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS)
+    public BulkCreateProgressDto bulk() throws IOException {
+        BulkCreateProgressDto summary = accountCreationService.createAll(new ByteArrayInputStream(ndjson), progress -> {
+        });
+        if (summary.created() != ACCOUNTS) {
+            throw new IllegalStateException("Bulk create stopped early: " + summary);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,59 @@
+package pl.kurs.bank.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandJsonBenchmark {
+
+    private static final byte[] WITHDRAW_JSON = "{\"accountId\":42,\"amount\":12.34}".getBytes();
+    private static final byte[] DEPOSIT_JSON = "{\"accountId\":42,\"amount\":1000}".getBytes();
+
+    private ObjectMapper objectMapper;
+    private WithdrawCashCommand withdrawCommand;
+    private AccountView accountView;
+
+    @Setup
+    public void setUp() {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        withdrawCommand = new WithdrawCashCommand();
+        withdrawCommand.setAccountId(42L);
+        withdrawCommand.setAmount(new BigDecimal("12.34"));
+        accountView = new AccountView(42L, 123_456L, LocalDateTime.now(), Account.Type.REGULAR, false);
+    }
+
+    @Benchmark
+    public WithdrawCashCommand readWithdrawCommand() throws IOException {
+        return objectMapper.readValue(WITHDRAW_JSON, WithdrawCashCommand.class);
+    }
+
+    @Benchmark
+    public DepositCashCommand readDepositCommand() throws IOException {
+        return objectMapper.readValue(DEPOSIT_JSON, DepositCashCommand.class);
+    }
+
+    @Benchmark
+    public byte[] writeWithdrawCommand() throws IOException {
+        return objectMapper.writeValueAsBytes(withdrawCommand);
+    }
+
+    @Benchmark
+    public byte[] writeAccountView() throws IOException {
+        return objectMapper.writeValueAsBytes(accountView);
+    }
+}
@@ -0,0 +1,75 @@
+package pl.kurs.bank.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One uncached GET: the managed entity loaded in a read-only transaction and serialized as it is, against the
+ * projection query and the dedicated {@link AccountView} serializer. Run with {@code -prof gc} to compare the
+ * bytes allocated per read ({@code gc.alloc.rate.norm}).
+ * <p>
+ * {@code mvn -Pbenchmarks -DskipTests verify -Djmh.args="GetAccountBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(4)
+public class GetAccountBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private ObjectMapper objectMapper;
+    private ObjectWriter viewWriter;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("get-account", "--bank.account.cache.enabled=false");
+        accountRepository = context.getBean(AccountRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(TransactionTemplate.class).getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        objectMapper = context.getBean(ObjectMapper.class);
+        viewWriter = objectMapper.writerFor(AccountView.class);
+        ids = BenchmarkApplication.createAccounts(accountRepository, ACCOUNTS, 100_000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] entity() {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return readOnlyTransaction.execute(status -> {
+            Account account = accountRepository.findById(id).orElseThrow();
+            try {
+                return objectMapper.writeValueAsBytes(account);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    public byte[] projection() throws IOException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return viewWriter.writeValueAsBytes(accountRepository.findViewById(id).orElseThrow());
+    }
+}
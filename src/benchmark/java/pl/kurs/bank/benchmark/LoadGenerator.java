@@ -0,0 +1,254 @@
+package pl.kurs.bank.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.model.MinorUnits;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Closed-loop HTTP load test against the application started on a random port. Every client thread picks an
+ * operation from the configured mix and an account from the configured distribution, then waits for the response.
+ * At the end all balances are read back: none may be negative and their sum must equal the initial money plus
+ * every acknowledged deposit minus every acknowledged withdrawal, give or take requests that failed without an answer.
+ * <p>
+ * {@code mvn -Pbenchmarks -DskipTests test-compile exec:exec@load-test -Dload.args="threads=32 duration=30s"}
+ * <p>
+ * Arguments, all optional: {@code threads=32 duration=30s accounts=1000 distribution=zipf write-mode=pessimistic
+ * deposit-mode=sync admission=false balance=1000 amount=1 mix=withdraw:40,deposit:40,get:16,lock:2,unlock:2}
+ */
+public final class LoadGenerator {
+
+    private static final List<String> OPERATIONS = List.of("withdraw", "deposit", "get", "lock", "unlock");
+
+    private final Map<String, String> options;
+    private final int[] weights = new int[OPERATIONS.size()];
+    private final List<LatencyLog> logs = new ArrayList<>();
+    private final LongAdder[] rejected = new LongAdder[OPERATIONS.size()];
+    private final LongAdder[] errors = new LongAdder[OPERATIONS.size()];
+    private final LongAdder deposited = new LongAdder();
+    private final LongAdder withdrawn = new LongAdder();
+    // a request that failed without a business answer may or may not have been applied
+    private final LongAdder uncertainDeposits = new LongAdder();
+    private final LongAdder uncertainWithdrawals = new LongAdder();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private String baseUrl;
+    private AccountIdSampler sampler;
+    private long amountMinor;
+    private int totalWeight;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        for (String entry : option("mix", "withdraw:40,deposit:40,get:16,lock:2,unlock:2").split(",")) {
+            String[] parts = entry.split(":");
+            int index = OPERATIONS.indexOf(parts[0]);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown operation " + parts[0] + ", expected one of " + OPERATIONS);
+            }
+            weights[index] = Integer.parseInt(parts[1]);
+            totalWeight += weights[index];
+        }
+        for (int i = 0; i < OPERATIONS.size(); i++) {
+            rejected[i] = new LongAdder();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        boolean consistent = new LoadGenerator(options).run();
+        System.exit(consistent ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        int threads = Integer.parseInt(option("threads", "32"));
+        Duration duration = Duration.parse("PT" + option("duration", "30s").toUpperCase());
+        int accounts = Integer.parseInt(option("accounts", "1000"));
+        long balanceMinor = MinorUnits.fromDecimal(new BigDecimal(option("balance", "1000")));
+        amountMinor = MinorUnits.fromDecimal(new BigDecimal(option("amount", "1")));
+
+        try (ConfigurableApplicationContext context = BenchmarkApplication.startWeb("load-test",
+                "--bank.account.write-mode=" + option("write-mode", "pessimistic"),
+                "--bank.account.journal.directory=" + Files.createTempDirectory("bank-journal"),
+                "--bank.account.deposit-mode=" + option("deposit-mode", "sync"),
+                "--bank.account.write-behind.directory=" + Files.createTempDirectory("bank-deposits"),
+                "--bank.account.admission.enabled=" + option("admission", "false"),
+                "--server.tomcat.threads.max=" + Math.max(200, threads))) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/accounts/";
+            long[] ids = BenchmarkApplication.createAccounts(context.getBean(AccountRepository.class), accounts, balanceMinor);
+            sampler = AccountIdSampler.of(option("distribution", "zipf"), ids);
+
+            System.out.printf("Running %d clients for %s against %s%n", threads, duration, baseUrl);
+            long elapsed = drive(threads, duration);
+            report(elapsed);
+            return verify(ids, balanceMinor * accounts, context.getBean(ObjectMapper.class));
+        }
+    }
+
+    private long drive(int threads, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            LatencyLog log = new LatencyLog();
+            logs.add(log);
+            Thread client = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        execute(log, pickOperation(), sampler.next());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            client.start();
+        }
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private void execute(LatencyLog log, int operation, long accountId) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = httpClient.send(request(OPERATIONS.get(operation), accountId), HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+        } catch (IOException e) {
+            status = -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        log.record(operation, System.nanoTime() - start);
+        if (status == 409 || status == 404 || status == 422 || status == 429) {
+            rejected[operation].increment();
+        } else if (status != 200) {
+            errors[operation].increment();
+            if (operation == 0) {
+                uncertainWithdrawals.add(amountMinor);
+            } else if (operation == 1) {
+                uncertainDeposits.add(amountMinor);
+            }
+        } else if (operation == 0) {
+            withdrawn.add(amountMinor);
+        } else if (operation == 1) {
+            deposited.add(amountMinor);
+        }
+    }
+
+    private HttpRequest request(String operation, long accountId) {
+        URI uri = URI.create(baseUrl + accountId + (operation.equals("get") ? "" : "/" + operation));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30));
+        return switch (operation) {
+            case "get" -> builder.GET().build();
+            case "withdraw", "deposit" -> builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"accountId\":" + accountId
+                            + ",\"amount\":" + MinorUnits.toDecimal(amountMinor).toPlainString() + "}"))
+                    .build();
+            default -> builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+        };
+    }
+
+    private int pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < weights.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.printf("%n%-9s %9s %10s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "req/s", "rejected", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (int i = 0; i < OPERATIONS.size(); i++) {
+            int operation = i;
+            long[] latencies = logs.stream()
+                    .flatMapToLong(log -> log.latencies(operation))
+                    .sorted()
+                    .toArray();
+            if (latencies.length == 0) {
+                continue;
+            }
+            total += latencies.length;
+            System.out.printf("%-9s %9d %10.1f %9d %9d %9.2f %9.2f %9.2f %9.2f%n", OPERATIONS.get(i), latencies.length,
+                    latencies.length / seconds, rejected[i].sum(), errors[i].sum(), percentile(latencies, 0.50),
+                    percentile(latencies, 0.95), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        }
+        System.out.printf("%-9s %9d %10.1f%n", "total", total, total / seconds);
+    }
+
+    private boolean verify(long[] ids, long initialTotal, ObjectMapper objectMapper) throws IOException, InterruptedException {
+        long total = 0;
+        List<Long> negative = new ArrayList<>();
+        for (long id : ids) {
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + id)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode account = objectMapper.readTree(response.body());
+            long balance = MinorUnits.fromDecimal(account.get("balance").decimalValue());
+            if (balance < 0) {
+                negative.add(id);
+            }
+            total += balance;
+        }
+        long expected = initialTotal + deposited.sum() - withdrawn.sum();
+        long lowest = expected - uncertainWithdrawals.sum();
+        long highest = expected + uncertainDeposits.sum();
+        System.out.printf("%nBalances: total %s, expected %s (%s to %s counting failed requests), negative accounts %s%n",
+                MinorUnits.toDecimal(total), MinorUnits.toDecimal(expected), MinorUnits.toDecimal(lowest),
+                MinorUnits.toDecimal(highest), negative);
+        boolean consistent = total >= lowest && total <= highest && negative.isEmpty();
+        System.out.println(consistent ? "Invariants hold." : "INVARIANT VIOLATED");
+        return consistent;
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Latencies of one client thread, merged only for the report, so recording never contends between clients.
+     */
+    private static final class LatencyLog {
+        private final long[][] latencies = new long[OPERATIONS.size()][1024];
+        private final int[] counts = new int[OPERATIONS.size()];
+
+        void record(int operation, long nanos) {
+            if (counts[operation] == latencies[operation].length) {
+                latencies[operation] = Arrays.copyOf(latencies[operation], counts[operation] * 2);
+            }
+            latencies[operation][counts[operation]++] = nanos;
+        }
+
+        LongStream latencies(int operation) {
+            return Arrays.stream(latencies[operation], 0, counts[operation]);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.kurs.bank.account.model.MinorUnits;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic of the account hot path: BigDecimal (the former representation) against long minor units.
+ * Run with {@code -prof gc} to compare allocation per operation as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private BigDecimal decimalBalance;
+    private BigDecimal decimalAmount;
+    private long minorBalance;
+    private long minorAmount;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        decimalBalance = new BigDecimal("10000000.00");
+        decimalAmount = new BigDecimal("12.34");
+        minorBalance = MinorUnits.fromDecimal(decimalBalance);
+        minorAmount = MinorUnits.fromDecimal(decimalAmount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalDepositAndWithdraw() {
+        decimalBalance = decimalBalance.add(decimalAmount);
+        if (decimalBalance.compareTo(decimalAmount) >= 0) {
+            decimalBalance = decimalBalance.subtract(decimalAmount);
+        }
+        return decimalBalance;
+    }
+
+    @Benchmark
+    public long minorUnitsDepositAndWithdraw() {
+        minorBalance = MinorUnits.add(minorBalance, minorAmount);
+        if (minorBalance >= minorAmount) {
+            minorBalance = MinorUnits.subtract(minorBalance, minorAmount);
+        }
+        return minorBalance;
+    }
+
+    @Benchmark
+    public BigDecimal minorUnitsToDecimal() {
+        return MinorUnits.toDecimal(minorBalance);
+    }
+}
@@ -0,0 +1,84 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.exception.AccountRejectedException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a refused operation next to an accepted one: a deposit to a locked account and an overdraft, both
+ * taking the full service path including the row lock and the rolled-back transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RejectionBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private DepositCashCommand accepted;
+    private DepositCashCommand depositToLocked;
+    private WithdrawCashCommand overdraft;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("rejection");
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        accountService = context.getBean(AccountService.class);
+        long[] ids = BenchmarkApplication.createAccounts(accountRepository, 2, 100L);
+        Account locked = accountRepository.findById(ids[1]).orElseThrow();
+        locked.setLocked(true);
+        accountRepository.save(locked);
+        accepted = deposit(ids[0]);
+        depositToLocked = deposit(ids[1]);
+        overdraft = new WithdrawCashCommand();
+        overdraft.setAccountId(ids[0]);
+        overdraft.setAmountMinor(Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void acceptedDeposit() {
+        accountService.deposit(accepted);
+    }
+
+    @Benchmark
+    public Object depositToLockedAccount() {
+        try {
+            accountService.deposit(depositToLocked);
+            return null;
+        } catch (AccountRejectedException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object overdraftWithdrawal() {
+        try {
+            accountService.withdraw(overdraft);
+            return null;
+        } catch (AccountRejectedException e) {
+            return e;
+        }
+    }
+
+    private static DepositCashCommand deposit(long accountId) {
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(accountId);
+        command.setAmountMinor(1L);
+        return command;
+    }
+}
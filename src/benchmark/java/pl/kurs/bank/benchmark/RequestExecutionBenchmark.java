@@ -0,0 +1,71 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-per-request against virtual threads with the database concurrency gate, over real HTTP.
+ * Virtual threads need a Java 21 runtime; on older runtimes the "true" case measures the gate alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RequestExecutionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"zipf"})
+    public String distribution;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private AccountIdSampler sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startWeb("request-execution",
+                "--bank.execution.virtual-threads=" + virtualThreads,
+                "--server.tomcat.threads.max=200");
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/accounts/";
+        sampler = AccountIdSampler.of(distribution, BenchmarkApplication.createAccounts(
+                context.getBean(AccountRepository.class), 1000, 1_000_000_000L));
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int deposit64Clients() throws IOException, InterruptedException {
+        long accountId = sampler.next();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + accountId + "/deposit"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"accountId\":" + accountId + ",\"amount\":1}"))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int get64Clients() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + sampler.next())).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,83 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+import pl.kurs.bank.account.shard.ShardRouter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Deposits and withdrawals on accounts spread evenly over 1, 2 and 4 file-based H2 shards, each with its own pool
+ * of ten connections. All shards share one JPA transaction manager and, here, one host, so the results only
+ * compare the configurations on this machine.
+ * <p>
+ * {@code mvn -Pbenchmarks -DskipTests verify -Djmh.args="ShardedWriteBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(32)
+public class ShardedWriteBenchmark {
+
+    private static final int ACCOUNTS_PER_SHARD = 500;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("bank-shards");
+        List<String> args = new ArrayList<>(List.of("--bank.sharding.enabled=true"));
+        for (int i = 0; i < shards; i++) {
+            args.add("--bank.sharding.shards[" + i + "].url=jdbc:h2:file:" + directory.resolve("shard-" + i)
+                    + ";DB_CLOSE_ON_EXIT=FALSE");
+        }
+        context = BenchmarkApplication.start("sharded-write", args.toArray(String[]::new));
+        accountService = context.getBean(AccountService.class);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        ShardRouter shardRouter = context.getBean(ShardRouter.class);
+        ids = shardRouter.onEachShard(() -> BenchmarkApplication.createAccounts(accountRepository,
+                        ACCOUNTS_PER_SHARD, 1_000_000_000L)).stream()
+                .flatMapToLong(LongStream::of)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void write() {
+        long accountId = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            DepositCashCommand command = new DepositCashCommand();
+            command.setAccountId(accountId);
+            command.setAmountMinor(100L);
+            accountService.deposit(command);
+        } else {
+            WithdrawCashCommand command = new WithdrawCashCommand();
+            command.setAccountId(accountId);
+            command.setAmountMinor(100L);
+            accountService.withdraw(command);
+        }
+    }
+}
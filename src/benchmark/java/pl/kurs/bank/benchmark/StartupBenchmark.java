@@ -0,0 +1,183 @@
+package pl.kurs.bank.benchmark;
+
+import pl.kurs.bank.Main;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Time to first request: from starting a new JVM with the application until {@code GET /api/v1/accounts} first
+ * answers 200. Each variant keeps its own file database across its launches, so the prod profile migrates it once,
+ * in an unmeasured first launch, and then starts against an up-to-date schema like a restarted node.
+ * <ul>
+ *     <li>{@code default}: the default properties, Hibernate recreates the schema</li>
+ *     <li>{@code prod}: the prod profile, Liquibase changelog and lazy initialization</li>
+ *     <li>{@code prod-cds}: the prod profile with an AppCDS archive, recorded by the first launch with
+ *     {@code -XX:ArchiveClassesAtExit} and used by the others with {@code -XX:SharedArchiveFile}</li>
+ * </ul>
+ * CDS only archives classes loaded from jars, so the application runs from target/classes packed into a jar and
+ * the dependency jars of this classpath, not from the Spring Boot fat jar.
+ * <p>
+ * {@code mvn -Pbenchmarks -DskipTests test-compile exec:exec@startup -Dstartup.args="launches=5"}
+ * <p>
+ * Arguments, all optional: {@code launches=5 variants=default,prod,prod-cds classes=target/classes timeout=120s}
+ */
+public final class StartupBenchmark {
+
+    private static final Map<String, List<String>> VARIANTS = Map.of(
+            "default", List.of(),
+            "prod", List.of("--spring.profiles.active=prod"),
+            "prod-cds", List.of("--spring.profiles.active=prod"));
+
+    private final Map<String, String> options;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final Path workDirectory;
+    private final String classpath;
+    private final Duration timeout;
+
+    private StartupBenchmark(Map<String, String> options) throws IOException {
+        this.options = options;
+        this.workDirectory = Files.createTempDirectory("bank-startup");
+        this.classpath = classpath(Path.of(option("classes", "target/classes")));
+        this.timeout = Duration.parse("PT" + option("timeout", "120s").toUpperCase());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        new StartupBenchmark(options).run();
+    }
+
+    private void run() throws Exception {
+        int launches = Integer.parseInt(option("launches", "5"));
+        Map<String, long[]> results = new LinkedHashMap<>();
+        for (String variant : option("variants", "default,prod,prod-cds").split(",")) {
+            if (!VARIANTS.containsKey(variant)) {
+                throw new IllegalArgumentException("Unknown variant " + variant + ", expected one of " + VARIANTS.keySet());
+            }
+            Path archive = workDirectory.resolve(variant + ".jsa");
+            boolean cds = variant.endsWith("-cds");
+            System.out.printf("%s: first launch%s%n", variant, cds ? ", recording " + archive : "");
+            launch(variant, cds ? List.of("-XX:ArchiveClassesAtExit=" + archive) : List.of());
+            if (cds && !Files.exists(archive)) {
+                throw new IllegalStateException("No CDS archive was written for " + variant + ", see " + log(variant));
+            }
+            long[] millis = new long[launches];
+            for (int i = 0; i < launches; i++) {
+                millis[i] = launch(variant, cds ? List.of("-XX:SharedArchiveFile=" + archive) : List.of());
+                System.out.printf("%s: launch %d ready in %d ms%n", variant, i + 1, millis[i]);
+            }
+            results.put(variant, millis);
+        }
+
+        System.out.printf("%nTime to first request (ms) over %d launches, work directory %s%n", launches, workDirectory);
+        System.out.printf("%-10s %8s %8s %8s%n", "variant", "min", "median", "max");
+        results.forEach((variant, millis) -> {
+            Arrays.sort(millis);
+            System.out.printf("%-10s %8d %8d %8d%n", variant, millis[0], millis[millis.length / 2], millis[millis.length - 1]);
+        });
+    }
+
+    // milliseconds from starting the JVM until the first successful request, the JVM is stopped afterwards
+    private long launch(String variant, List<String> jvmOptions) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", classpath, Main.class.getName(),
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:file:" + workDirectory.resolve("db-" + variant),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"));
+        command.addAll(VARIANTS.get(variant));
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/accounts");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log(variant).toFile()))
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (!ready(uri)) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IllegalStateException(variant + " did not answer " + uri + ", see " + log(variant));
+                }
+                Thread.sleep(5);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            // a graceful stop, the CDS archive is written when the JVM exits
+            process.destroy();
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean ready(URI uri) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+
+    private Path log(String variant) {
+        return workDirectory.resolve(variant + ".log");
+    }
+
+    // the application classes packed into a jar and the jars of this classpath, its directories are left out
+    private String classpath(Path classes) throws IOException {
+        Path applicationJar = workDirectory.resolve("bank.jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(applicationJar));
+             Stream<Path> files = Files.walk(classes)) {
+            // directory entries too, component scanning looks packages up as resources
+            for (Path file : files.filter(file -> !file.equals(classes)).sorted().toList()) {
+                String name = classes.relativize(file).toString().replace('\\', '/');
+                if (Files.isDirectory(file)) {
+                    jar.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    jar.putNextEntry(new JarEntry(name));
+                    Files.copy(file, jar);
+                }
+                jar.closeEntry();
+            }
+        }
+        List<String> entries = new ArrayList<>(List.of(applicationJar.toString()));
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (entry.endsWith(".jar")) {
+                entries.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
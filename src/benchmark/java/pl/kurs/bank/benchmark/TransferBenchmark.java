@@ -0,0 +1,76 @@
+package pl.kurs.bank.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers between random, overlapping account pairs in both directions. Sample-time mode reports the latency
+ * percentiles; a deadlock would surface as a failed invocation and the trial ends by checking that no money was
+ * created or lost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    // a handful of accounts keeps almost every pair overlapping with another in-flight transfer
+    @Param({"16", "1000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private AccountRepository accountRepository;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("transfer");
+        accountService = context.getBean(AccountService.class);
+        accountRepository = context.getBean(AccountRepository.class);
+        ids = BenchmarkApplication.createAccounts(accountRepository, accounts, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long total = accountRepository.findAll().stream().mapToLong(Account::getBalanceMinor).sum();
+        context.close();
+        if (total != INITIAL_BALANCE * accounts) {
+            throw new IllegalStateException("Transfers changed the total balance to " + total);
+        }
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void transfer32Threads() {
+        transfer();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void transfer128Threads() {
+        transfer();
+    }
+
+    private void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(ids.length);
+        int to = (from + 1 + random.nextInt(ids.length - 1)) % ids.length;
+        TransferCashCommand command = new TransferCashCommand();
+        command.setFromAccountId(ids[from]);
+        command.setToAccountId(ids[to]);
+        command.setAmountMinor(100L);
+        accountService.transfer(command);
+    }
+}
@@ -2,13 +2,16 @@ package pl.kurs.bank;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
-@SpringBootApplication
+// with the reactive profile on the classpath an R2DBC ConnectionFactory would make the JPA DataSource back off
+@SpringBootApplication(excludeName = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
 @EnableJpaAuditing
+@ConfigurationPropertiesScan
 public class Main {
     public static void main(String[] args) {
-        SpringApplication.run(Main.class);
+        SpringApplication.run(Main.class, args);
     }
 
     // Analiza błędu ze stanem konta:
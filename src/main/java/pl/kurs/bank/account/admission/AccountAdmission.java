@@ -0,0 +1,175 @@
+package pl.kurs.bank.account.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Opt-in admission control in front of account writes (bank.account.admission.enabled=true). Operations on one
+ * account serialize on its row lock, so past a few in flight every further one only waits there, holding a thread
+ * and a connection. An operation over the limit of its account or of the whole service is refused at once with
+ * {@link AccountOverloadedException} instead of queueing. Both limits follow observed latency:
+ * <ul>
+ *     <li>per account, as many operations as fit one after another in the target latency, from a moving average
+ *     of the latency of operations that found their account idle, between 1 and max-per-account</li>
+ *     <li>globally, additive increase while operations finish within the target latency and the limit is in use,
+ *     multiplicative decrease at most once per target latency while they do not, between min-limit and max-limit</li>
+ * </ul>
+ * A burst on one account is cut to its own short queue, whose operations stay near the target latency and leave
+ * the global limit, and with it every other account, alone.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account.admission.enabled", havingValue = "true")
+public class AccountAdmission {
+
+    // weight of a new sample in the moving average of uncontended latency
+    private static final double SMOOTHING = 0.1;
+
+    private final AdmissionProperties properties;
+    private final long targetNanos;
+    // only accounts with operations in flight have an entry
+    private final Map<Long, Integer> inFlightPerAccount = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // bits of a double, fractional so that additive increase can add 1/limit per operation
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease;
+    // updated without synchronization, a lost sample only slows the average down
+    private volatile double serviceNanos;
+
+    public AccountAdmission(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.targetNanos = properties.getTargetLatency().toNanos();
+        this.limit = new AtomicLong(Double.doubleToLongBits(properties.getInitialLimit()));
+        this.lastDecrease = new AtomicLong(System.nanoTime() - targetNanos);
+        Gauge.builder("bank.account.admission.limit", this::limit)
+                .description("Account operations admitted in flight at once")
+                .register(meterRegistry);
+        Gauge.builder("bank.account.admission.account-limit", this::accountLimit)
+                .description("Account operations admitted in flight at once on one account")
+                .register(meterRegistry);
+        Gauge.builder("bank.account.admission.in-flight", inFlight::get)
+                .description("Account operations in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits one operation on all the given accounts, or with none only against the global limit, or throws
+     * {@link AccountOverloadedException} having taken nothing. The permit must be closed when the operation ends,
+     * successfully or not.
+     */
+    public Permit admit(long... accountIds) {
+        int accountLimit = accountLimit();
+        boolean idle = accountIds.length > 0;
+        for (int i = 0; i < accountIds.length; i++) {
+            int before = enterAccount(accountIds[i], accountLimit);
+            if (before < 0) {
+                leaveAccounts(accountIds, i);
+                throw new AccountOverloadedException(accountIds[i], properties.getRetryAfter());
+            }
+            idle &= before == 0;
+        }
+        int before = enterGlobal();
+        if (before < 0) {
+            leaveAccounts(accountIds, accountIds.length);
+            throw new AccountOverloadedException(null, properties.getRetryAfter());
+        }
+        return new Permit(accountIds, idle, before + 1, System.nanoTime());
+    }
+
+    int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    int accountLimit() {
+        double service = serviceNanos;
+        if (service == 0) {
+            return properties.getMaxPerAccount();
+        }
+        return (int) Math.max(1, Math.min(properties.getMaxPerAccount(), targetNanos / service));
+    }
+
+    // the operations in flight on the account before this one, or -1 when it is refused
+    private int enterAccount(long accountId, int accountLimit) {
+        int[] before = {-1};
+        inFlightPerAccount.compute(accountId, (id, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= accountLimit) {
+                return count;
+            }
+            before[0] = current;
+            return current + 1;
+        });
+        return before[0];
+    }
+
+    private void leaveAccounts(long[] accountIds, int count) {
+        for (int i = 0; i < count; i++) {
+            inFlightPerAccount.computeIfPresent(accountIds[i], (id, current) -> current == 1 ? null : current - 1);
+        }
+    }
+
+    private int enterGlobal() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit()) {
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return current;
+    }
+
+    void onCompleted(long latencyNanos, boolean idle, int inFlightAtAdmission) {
+        if (idle) {
+            double service = serviceNanos;
+            serviceNanos = service == 0 ? latencyNanos : service + SMOOTHING * (latencyNanos - service);
+        }
+        if (latencyNanos > targetNanos) {
+            long now = System.nanoTime();
+            long last = lastDecrease.get();
+            if (now - last >= targetNanos && lastDecrease.compareAndSet(last, now)) {
+                updateLimit(current -> Math.max(properties.getMinLimit(), current * properties.getBackoffRatio()));
+            }
+        } else if (inFlightAtAdmission * 2 >= limit()) {
+            updateLimit(current -> Math.min(properties.getMaxLimit(), current + 1 / current));
+        }
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        limit.updateAndGet(bits -> Double.doubleToLongBits(update.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final long[] accountIds;
+        private final boolean idle;
+        private final int inFlightAtAdmission;
+        private final long admittedAt;
+        private boolean closed;
+
+        private Permit(long[] accountIds, boolean idle, int inFlightAtAdmission, long admittedAt) {
+            this.accountIds = accountIds;
+            this.idle = idle;
+            this.inFlightAtAdmission = inFlightAtAdmission;
+            this.admittedAt = admittedAt;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            leaveAccounts(accountIds, accountIds.length);
+            inFlight.decrementAndGet();
+            onCompleted(System.nanoTime() - admittedAt, idle, inFlightAtAdmission);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pl.kurs.bank.account.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.admission")
+public class AdmissionProperties {
+    private boolean enabled = false;
+    // latency an admitted operation should stay within, both limits are fitted to it
+    private Duration targetLatency = Duration.ofMillis(50);
+    // upper bound of operations in flight on one account
+    private int maxPerAccount = 8;
+    // operations in flight on all accounts
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    // the global limit is multiplied by it when operations exceed the target latency
+    private double backoffRatio = 0.9;
+    // sent with 429 responses
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
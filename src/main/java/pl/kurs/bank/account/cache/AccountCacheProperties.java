@@ -0,0 +1,16 @@
+package pl.kurs.bank.account.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.cache")
+public class AccountCacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 10_000;
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+}
@@ -0,0 +1,76 @@
+package pl.kurs.bank.account.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache of account views. Writers invalidate an entry before their transaction commits
+ * and again after it, and a reader only keeps what it loaded if no invalidation hit the same stripe meanwhile,
+ * so a value read before a commit can never be cached after it.
+ */
+@Component
+public class AccountReadCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final Cache<Long, AccountView> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AccountReadCache(AccountCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accounts");
+    }
+
+    public AccountView get(long accountId, Supplier<AccountView> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        AccountView cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(accountId);
+        long generation = generations.get(stripe);
+        AccountView loaded = loader.get();
+        cache.put(accountId, loaded);
+        if (generations.get(stripe) != generation) {
+            cache.invalidate(accountId);
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void evictBeforeCommit(AccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void evictAfterCommit(AccountChangedEvent event) {
+        invalidate(event.accountId());
+    }
+
+    private void invalidate(long accountId) {
+        generations.incrementAndGet(stripe(accountId));
+        cache.invalidate(accountId);
+    }
+
+    private static int stripe(long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), GENERATION_STRIPES);
+    }
+}
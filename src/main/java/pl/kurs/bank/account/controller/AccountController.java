@@ -1,12 +1,39 @@
 package pl.kurs.bank.account.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
+import pl.kurs.bank.account.model.command.CreateAccountCommand;
 import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
 import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.readmodel.AccountReadModel;
+import pl.kurs.bank.account.readmodel.ReadModelMarker;
+import pl.kurs.bank.account.service.AccountBatchService;
+import pl.kurs.bank.account.service.AccountCreationService;
+import pl.kurs.bank.account.service.AccountQueryService;
 import pl.kurs.bank.account.service.AccountService;
+import pl.kurs.bank.account.stats.AccountStatistics;
+import pl.kurs.bank.common.dto.AccountPageDto;
+import pl.kurs.bank.common.dto.AccountStatsDto;
+import pl.kurs.bank.common.dto.BatchResultDto;
+import pl.kurs.bank.common.dto.BulkCreateProgressDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/accounts")
@@ -15,6 +42,27 @@ import pl.kurs.bank.account.service.AccountService;
 public class AccountController {
 
     private final AccountService accountService;
+    private final AccountBatchService accountBatchService;
+    private final AccountQueryService accountQueryService;
+    private final AccountCreationService accountCreationService;
+    private final AccountStatistics accountStatistics;
+    private final ObjectMapper objectMapper;
+    private final Optional<AccountReadModel> accountReadModel;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public AccountView create(@RequestBody CreateAccountCommand command) {
+        return accountCreationService.create(command);
+    }
+
+    // the body is read line by line while accounts are inserted, a progress line goes back after every committed chunk
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulkCreate(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+        BulkCreateProgressDto summary = accountCreationService.createAll(body, progress -> writeLine(output, progress));
+        writeLine(output, summary);
+    }
 
     @PostMapping("/{id}/withdraw")
     public void withdraw(@PathVariable long id, @RequestBody WithdrawCashCommand command) {
@@ -26,6 +74,11 @@ public class AccountController {
         accountService.deposit(command);
     }
 
+    @PostMapping("/transfer")
+    public void transfer(@RequestBody TransferCashCommand command) {
+        accountService.transfer(command);
+    }
+
     @PostMapping("/{id}/lock")
     public void lock(@PathVariable long id) {
         accountService.lock(id);
@@ -36,9 +89,59 @@ public class AccountController {
         accountService.unlock(id);
     }
 
+    @PostMapping("/{id}/stripe")
+    public void stripe(@PathVariable long id, @RequestParam int stripes) {
+        accountService.stripe(id, stripes);
+    }
+
+    @GetMapping
+    public AccountPageDto listAccounts(@RequestParam(defaultValue = "0") long afterId,
+                                       @RequestParam(defaultValue = "100") int limit,
+                                       @RequestParam(required = false) Account.Type type,
+                                       @RequestParam(required = false) Boolean locked) {
+        return accountQueryService.list(afterId, limit, type, locked);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAccounts(@RequestParam(required = false) Account.Type type,
+                                                                @RequestParam(required = false) Boolean locked) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(output -> accountQueryService.export(type, locked, output));
+    }
+
+    @GetMapping("/stats")
+    public AccountStatsDto getStats() {
+        return accountStatistics.getStats();
+    }
+
+    // the marker is taken before the read, so the view contains at least every change up to its sequence
     @GetMapping("/{id}")
-    public Account getAccount(@PathVariable long id) {
-        return accountService.getAccount(id);
+    public ResponseEntity<AccountView> getAccount(@PathVariable long id) {
+        if (accountReadModel.isEmpty()) {
+            return ResponseEntity.ok(accountService.getAccount(id));
+        }
+        ReadModelMarker marker = accountReadModel.get().marker();
+        return ResponseEntity.ok()
+                .header("X-Read-Model-Sequence", String.valueOf(marker.sequence()))
+                .header("X-Read-Model-Pending", String.valueOf(marker.pending()))
+                .header("X-Read-Model-Staleness-Ms", String.valueOf(marker.stalenessMillis()))
+                .body(accountService.getAccount(id));
+    }
+
+    @PostMapping("/batch")
+    public List<BatchResultDto> batch(@RequestBody BatchCashCommand command) {
+        return accountBatchService.execute(command);
+    }
+
+    private void writeLine(OutputStream output, BulkCreateProgressDto progress) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(progress));
+            output.write('\n');
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
 
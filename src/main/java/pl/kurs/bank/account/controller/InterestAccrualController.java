@@ -0,0 +1,31 @@
+package pl.kurs.bank.account.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import pl.kurs.bank.account.interest.InterestAccrualService;
+import pl.kurs.bank.common.dto.InterestAccrualDto;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/v1/interest-accruals")
+@RequiredArgsConstructor
+public class InterestAccrualController {
+
+    private final InterestAccrualService interestAccrualService;
+
+    // the run continues in the background, its progress is read with GET
+    @PostMapping("/{date}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public InterestAccrualDto accrue(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        interestAccrualService.accrue(date);
+        return interestAccrualService.getStatus(date);
+    }
+
+    @GetMapping("/{date}")
+    public InterestAccrualDto getStatus(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return interestAccrualService.getStatus(date);
+    }
+}
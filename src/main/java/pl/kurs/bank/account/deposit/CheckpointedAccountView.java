@@ -0,0 +1,15 @@
+package pl.kurs.bank.account.deposit;
+
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+
+import java.time.LocalDateTime;
+
+// an account row and the deposit checkpoint read by one statement, so both come from the same committed state
+public record CheckpointedAccountView(long id, long balance, LocalDateTime creationDate, Account.Type type,
+                                      boolean locked, long appliedSequence) {
+
+    AccountView withPending(long pendingDeposits) {
+        return new AccountView(id, balance + pendingDeposits, creationDate, type, locked);
+    }
+}
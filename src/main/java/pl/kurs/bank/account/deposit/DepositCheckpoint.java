@@ -0,0 +1,21 @@
+package pl.kurs.bank.account.deposit;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Highest deposit log sequence already applied to the account rows. It is written in the same transaction as
+ * the balances it covers, so after a crash exactly the deposits above it are applied again.
+ */
+@Entity
+@Getter
+@Setter
+public class DepositCheckpoint {
+    static final int ID = 1;
+
+    @Id
+    private int id = ID;
+    private long appliedSequence;
+}
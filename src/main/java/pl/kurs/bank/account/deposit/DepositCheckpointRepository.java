@@ -0,0 +1,15 @@
+package pl.kurs.bank.account.deposit;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface DepositCheckpointRepository extends JpaRepository<DepositCheckpoint, Integer> {
+
+    @Query("SELECT new pl.kurs.bank.account.deposit.CheckpointedAccountView(a.id, a.balanceMinor + "
+            + "COALESCE((SELECT SUM(s.balanceMinor) FROM AccountSlot s WHERE s.accountId = a.id), 0), "
+            + "a.creationDate, a.type, a.locked, c.appliedSequence) "
+            + "FROM Account a, DepositCheckpoint c WHERE a.id = :accountId AND c.id = " + DepositCheckpoint.ID)
+    Optional<CheckpointedAccountView> findCheckpointedView(long accountId);
+}
@@ -0,0 +1,45 @@
+package pl.kurs.bank.account.deposit;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.kurs.bank.common.log.SegmentedLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Log of accepted deposits. Unlike the operation journal it is not kept, a segment is deleted once every deposit
+ * in it has been applied to the database.
+ */
+@Slf4j
+class DepositLog extends SegmentedLog<DepositRecord> {
+
+    static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    DepositLog(Path directory, boolean fsync) {
+        super(directory, "deposits-", DepositRecord.CODEC, fsync);
+    }
+
+    long append(long accountId, long amount) {
+        return append(sequence -> new DepositRecord(sequence, accountId, amount));
+    }
+
+    /**
+     * Starts a new segment when the current one has grown past {@link #SEGMENT_BYTES} and deletes every closed
+     * segment whose deposits are all at or below {@code appliedSequence}.
+     */
+    void release(long appliedSequence) {
+        try {
+            if (currentSegmentSize() >= SEGMENT_BYTES) {
+                rotate();
+            }
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= appliedSequence + 1; i++) {
+                Files.delete(segments.get(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to release applied deposit log segments, they will be retried after the next flush", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pl.kurs.bank.account.deposit;
+
+import pl.kurs.bank.common.log.RecordCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One accepted deposit as stored in the {@link DepositLog}.
+ */
+record DepositRecord(long sequence, long accountId, long amount) {
+
+    static final int SIZE = 8 + 8 + 8 + 4;
+
+    static final RecordCodec<DepositRecord> CODEC = new RecordCodec<>() {
+        @Override
+        public int size() {
+            return SIZE;
+        }
+
+        @Override
+        public long sequence(DepositRecord record) {
+            return record.sequence();
+        }
+
+        @Override
+        public void write(DepositRecord record, ByteBuffer buffer) {
+            record.writeTo(buffer);
+        }
+
+        @Override
+        public DepositRecord read(ByteBuffer buffer) {
+            return readFrom(buffer);
+        }
+    };
+
+    void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(sequence)
+                .putLong(accountId)
+                .putLong(amount);
+        buffer.putInt(RecordCodec.checksum(buffer, start, SIZE - 4));
+    }
+
+    // null when the bytes are a torn or corrupted write
+    static DepositRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.getInt(start + SIZE - 4) != RecordCodec.checksum(buffer, start, SIZE - 4)) {
+            return null;
+        }
+        DepositRecord record = new DepositRecord(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        buffer.getInt();
+        return record;
+    }
+}
@@ -0,0 +1,242 @@
+package pl.kurs.bank.account.deposit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind deposits. An accepted deposit is appended to the local {@link DepositLog} and acknowledged once the
+ * log is on disk; a background task then adds the summed deposits of each account to its row, many accounts per
+ * transaction, together with the {@link DepositCheckpoint} covering them. Reads add the deposits the returned row
+ * does not contain yet, withdrawals have the account's waiting deposits applied first, and on startup every logged
+ * deposit above the checkpoint is queued again.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account.deposit-mode", havingValue = "write-behind")
+@Slf4j
+public class WriteBehindDepositQueue {
+
+    private final AccountRepository accountRepository;
+    private final DepositCheckpointRepository checkpointRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+    private final DepositLog depositLog;
+    // batches waiting to be applied, oldest first; guarded by this
+    private final List<Batch> flushing = new ArrayList<>();
+    private Batch current = new Batch();
+    // one flush at a time: the checkpoint is read without a lock, two flushes of one batch would both apply it
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deposit-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public WriteBehindDepositQueue(AccountRepository accountRepository, DepositCheckpointRepository checkpointRepository,
+                                   AccountUpdateStrategy updateStrategy, ApplicationEventPublisher eventPublisher,
+                                   TransactionTemplate transactionTemplate, WriteBehindProperties properties) {
+        this(accountRepository, checkpointRepository, updateStrategy, eventPublisher, transactionTemplate, properties,
+                new DepositLog(properties.getDirectory(), properties.isFsync()));
+    }
+
+    WriteBehindDepositQueue(AccountRepository accountRepository, DepositCheckpointRepository checkpointRepository,
+                            AccountUpdateStrategy updateStrategy, ApplicationEventPublisher eventPublisher,
+                            TransactionTemplate transactionTemplate, WriteBehindProperties properties,
+                            DepositLog depositLog) {
+        this.accountRepository = accountRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.updateStrategy = updateStrategy;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.depositLog = depositLog;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!updateStrategy.isDatabaseBacked()) {
+            throw new IllegalStateException("Write-behind deposits need a write mode that keeps balances in the database.");
+        }
+        long applied = transactionTemplate.execute(status -> checkpointRepository.findById(DepositCheckpoint.ID)
+                .orElseGet(() -> checkpointRepository.save(new DepositCheckpoint()))
+                .getAppliedSequence());
+        depositLog.open(applied, record -> current.add(record.sequence(), record.accountId(), record.amount()));
+        log.info("Recovered {} pending deposits above checkpoint {}", depositLog.lastSequence() - applied, applied);
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+        depositLog.close();
+    }
+
+    /**
+     * Returns once the deposit is durable in the local log; the account row is updated later. Lock and existence
+     * checks are the caller's, made before the deposit is accepted. When the log cannot be synced the deposit is
+     * taken back out of its batch before the failure is thrown, batches are only applied once synced, so a deposit
+     * reported as failed is never applied.
+     */
+    public void accept(long accountId, long amount) {
+        long sequence;
+        synchronized (this) {
+            if (current.deposits.size() >= properties.getMaxPendingAccounts() && !current.deposits.containsKey(accountId)) {
+                throw new AccountOperationException("Too many pending deposits, try again later.");
+            }
+            sequence = depositLog.append(accountId, amount);
+            current.add(sequence, accountId, amount);
+        }
+        try {
+            depositLog.sync(sequence);
+        } catch (RuntimeException e) {
+            withdrawFromBatch(sequence, accountId, amount);
+            throw e;
+        }
+    }
+
+    // the batch holding a sequence is the first one whose last sequence is not below it
+    private synchronized void withdrawFromBatch(long sequence, long accountId, long amount) {
+        List<Batch> batches = new ArrayList<>(flushing);
+        batches.add(current);
+        for (Batch batch : batches) {
+            if (batch.lastSequence >= sequence) {
+                batch.deposits.computeIfPresent(accountId, (id, sum) -> sum == amount ? null : sum - amount);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The account as the database has it plus every accepted deposit it does not contain yet. The batches are
+     * taken before the row is read: one applied in between is then both in the row and in the list, and is
+     * recognised as applied by the checkpoint read with the row.
+     */
+    public AccountView find(long accountId) {
+        List<Batch> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(flushing);
+            pending.add(current);
+        }
+        CheckpointedAccountView view = checkpointRepository.findCheckpointedView(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        long deposits = 0;
+        for (Batch batch : pending) {
+            if (batch.lastSequence > view.appliedSequence()) {
+                deposits += batch.deposits.getOrDefault(accountId, 0L);
+            }
+        }
+        return view.withPending(deposits);
+    }
+
+    /**
+     * Applies the waiting deposits now when some of them are for the account, so that a withdrawal following it
+     * sees every deposit acknowledged before, as reads do. The checkpoint covers whole batches, so the batches are
+     * applied whole, other accounts' deposits included.
+     */
+    public void applyPending(long accountId) {
+        if (hasPending(accountId)) {
+            flush();
+        }
+    }
+
+    private synchronized boolean hasPending(long accountId) {
+        return current.deposits.containsKey(accountId)
+                || flushing.stream().anyMatch(batch -> batch.deposits.containsKey(accountId));
+    }
+
+    public synchronized int pendingAccounts() {
+        return flushing.stream().mapToInt(batch -> batch.deposits.size()).sum() + current.deposits.size();
+    }
+
+    /**
+     * Applies every waiting batch in its own transaction, once the log holds all of its deposits. A batch that fails
+     * stays queued and is retried on the next run; the checkpoint committed with it makes a retry after an unknown
+     * outcome a no-op. After a failed log sync nothing is applied any more, the deposits acknowledged before are
+     * still read from the batches and applied from the log on the next start.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (!current.deposits.isEmpty()) {
+                    flushing.add(current);
+                    current = new Batch();
+                }
+            }
+            while (true) {
+                Batch batch;
+                synchronized (this) {
+                    if (flushing.isEmpty()) {
+                        return;
+                    }
+                    batch = flushing.get(0);
+                }
+                try {
+                    depositLog.sync(batch.lastSequence);
+                    transactionTemplate.executeWithoutResult(status -> apply(batch));
+                } catch (RuntimeException e) {
+                    log.error("Applying {} pending deposits failed, retrying on the next flush", batch.deposits.size(), e);
+                    return;
+                }
+                synchronized (this) {
+                    flushing.remove(0);
+                }
+                depositLog.release(batch.lastSequence);
+            }
+        }
+    }
+
+    // accounts are updated in ascending id order, the order every multi-account lock in the application uses
+    private void apply(Batch batch) {
+        DepositCheckpoint checkpoint = checkpointRepository.findById(DepositCheckpoint.ID).orElseThrow();
+        if (checkpoint.getAppliedSequence() >= batch.lastSequence) {
+            return;
+        }
+        batch.deposits.forEach((accountId, amount) -> {
+            if (accountRepository.addToBalance(accountId, amount) == 0) {
+                log.error("Account {} disappeared, dropping {} of accepted deposits", accountId, amount);
+            }
+            eventPublisher.publishEvent(new AccountChangedEvent(accountId));
+        });
+        checkpoint.setAppliedSequence(batch.lastSequence);
+    }
+
+    /**
+     * Deposits summed per account. Only the current batch is written to, under the queue's monitor; readers may
+     * look at it concurrently.
+     */
+    private static final class Batch {
+        private final Map<Long, Long> deposits = new ConcurrentSkipListMap<>();
+        private volatile long lastSequence;
+
+        void add(long sequence, long accountId, long amount) {
+            deposits.merge(accountId, amount, Long::sum);
+            lastSequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package pl.kurs.bank.account.deposit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.write-behind")
+public class WriteBehindProperties {
+    private Path directory = Path.of(System.getProperty("user.home"), "bank-deposits-zywko");
+    private Duration flushInterval = Duration.ofMillis(50);
+    // force every group of appends to disk before acknowledging them
+    private boolean fsync = true;
+    // accounts with deposits waiting for the next flush, further deposits to new accounts are refused above it
+    private int maxPendingAccounts = 100_000;
+}
@@ -0,0 +1,174 @@
+package pl.kurs.bank.account.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Single writer for a subset of accounts. Updates are applied in arrival order and every drained batch
+ * is persisted in one transaction, so a hot account costs one row update per batch instead of one per command.
+ */
+@Slf4j
+class AccountPartition implements Runnable {
+
+    private final BlockingQueue<PendingUpdate> queue;
+    private final int batchSize;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountMetrics accountMetrics;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    AccountPartition(int index, PartitionedEngineProperties properties, AccountRepository accountRepository,
+                     TransactionTemplate transactionTemplate, AccountMetrics accountMetrics) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSize = properties.getBatchSize();
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.accountMetrics = accountMetrics;
+        this.worker = new Thread(this, "account-partition-" + index);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    // updates queued after the worker's last poll are failed here, their submitters would wait for them forever
+    void stop() throws InterruptedException {
+        running = false;
+        worker.join();
+        failQueued();
+    }
+
+    /**
+     * Queues the update. A submit racing with {@link #stop()} is failed by whichever of them sees the worker gone
+     * with the update still queued.
+     */
+    PendingUpdate submit(long accountId, Consumer<Account> operation) {
+        if (!running) {
+            throw stopped();
+        }
+        PendingUpdate update = new PendingUpdate(accountId, operation, new CompletableFuture<>(), new AtomicBoolean());
+        try {
+            queue.put(update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + worker.getName(), e);
+        }
+        if (!running && !worker.isAlive()) {
+            failQueued();
+        }
+        return update;
+    }
+
+    @Override
+    public void run() {
+        List<PendingUpdate> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingUpdate first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure in {}", worker.getName(), e);
+                batch.forEach(update -> update.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void failQueued() {
+        PendingUpdate update;
+        while ((update = queue.poll()) != null) {
+            update.result().completeExceptionally(stopped());
+        }
+    }
+
+    private IllegalStateException stopped() {
+        return new IllegalStateException("Account partition " + worker.getName() + " is stopped");
+    }
+
+    private void apply(List<PendingUpdate> batch) {
+        batch.removeIf(update -> !update.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        RuntimeException[] failures = new RuntimeException[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Arrays.fill(failures, null);
+                Map<Long, Account> accounts = lockAccounts(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    PendingUpdate update = batch.get(i);
+                    Account account = accounts.get(update.accountId());
+                    if (account == null) {
+                        failures[i] = new AccountNotFoundException(update.accountId());
+                        continue;
+                    }
+                    try {
+                        update.operation().accept(account);
+                    } catch (RuntimeException e) {
+                        failures[i] = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            batch.forEach(update -> update.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] == null) {
+                batch.get(i).result().complete(null);
+            } else {
+                batch.get(i).result().completeExceptionally(failures[i]);
+            }
+        }
+    }
+
+    // the partition is the only writer of its accounts, so the row locks are never contended here;
+    // they only keep lock/unlock and other transactional paths from interleaving with the batch
+    private Map<Long, Account> lockAccounts(List<PendingUpdate> batch) {
+        Set<Long> ids = new LinkedHashSet<>();
+        batch.forEach(update -> ids.add(update.accountId()));
+        return accountMetrics.recordLockWait("partition", () -> accountRepository.findAllByIdWithPessimisticLock(ids)).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    /**
+     * An update waiting for its partition. Exactly one of the worker, which applies it, and the submitter, which
+     * gives up waiting, claims it.
+     */
+    record PendingUpdate(long accountId, Consumer<Account> operation, CompletableFuture<Void> result,
+                         AtomicBoolean claimed) {
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
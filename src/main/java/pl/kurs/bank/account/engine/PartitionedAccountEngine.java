@@ -0,0 +1,81 @@
+package pl.kurs.bank.account.engine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "bank.account.write-mode", havingValue = "partitioned")
+@Slf4j
+public class PartitionedAccountEngine implements AccountUpdateStrategy {
+
+    private final AccountPartition[] partitions;
+    private final Duration updateTimeout;
+
+    public PartitionedAccountEngine(PartitionedEngineProperties properties, AccountRepository accountRepository,
+                                    TransactionTemplate transactionTemplate, AccountMetrics accountMetrics) {
+        this.partitions = new AccountPartition[properties.getPartitions()];
+        this.updateTimeout = properties.getUpdateTimeout();
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new AccountPartition(i, properties, accountRepository, transactionTemplate, accountMetrics);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        for (AccountPartition partition : partitions) {
+            partition.start();
+        }
+        log.info("Started {} account partitions", partitions.length);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (AccountPartition partition : partitions) {
+            partition.stop();
+        }
+    }
+
+    // an update still queued after the timeout is withdrawn and refused as overload, one the worker has already
+    // taken is waited for, its batch transaction is under way
+    @Override
+    public void update(long accountId, Consumer<Account> operation) {
+        AccountPartition.PendingUpdate update = partitionFor(accountId).submit(accountId, operation);
+        try {
+            try {
+                update.result().get(updateTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (update.claim()) {
+                    throw new AccountOverloadedException(accountId, updateTimeout);
+                }
+                update.result().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for account " + accountId, e);
+        }
+    }
+
+    private AccountPartition partitionFor(long accountId) {
+        return partitions[(int) Math.floorMod(accountId, (long) partitions.length)];
+    }
+}
@@ -0,0 +1,19 @@
+package pl.kurs.bank.account.engine;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.partitioned")
+public class PartitionedEngineProperties {
+    // every partition holds one pooled connection while it writes a batch, keep it below the pool size
+    private int partitions = 4;
+    private int batchSize = 256;
+    private int queueCapacity = 10_000;
+    // how long an update may wait in its partition's queue before it is withdrawn and refused
+    private Duration updateTimeout = Duration.ofSeconds(5);
+}
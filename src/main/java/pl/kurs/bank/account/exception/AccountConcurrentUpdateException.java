@@ -0,0 +1,13 @@
+package pl.kurs.bank.account.exception;
+
+import lombok.Getter;
+
+@Getter
+public class AccountConcurrentUpdateException extends AccountRejectedException {
+    private final long accountId;
+
+    public AccountConcurrentUpdateException(long accountId) {
+        super(null);
+        this.accountId = accountId;
+    }
+}
@@ -1,8 +1,13 @@
 package pl.kurs.bank.account.exception;
 
-import lombok.Value;
+import lombok.Getter;
 
-@Value
-public class AccountLockedException extends RuntimeException{
-    long accountId;
+@Getter
+public class AccountLockedException extends AccountRejectedException {
+    private final long accountId;
+
+    public AccountLockedException(long accountId) {
+        super(null);
+        this.accountId = accountId;
+    }
 }
@@ -1,9 +1,13 @@
 package pl.kurs.bank.account.exception;
 
+import lombok.Getter;
 
-import lombok.Value;
+@Getter
+public class AccountNotFoundException extends AccountRejectedException {
+    private final long accountId;
 
-@Value
-public class AccountNotFoundException extends RuntimeException {
-    long accountId;
+    public AccountNotFoundException(long accountId) {
+        super(null);
+        this.accountId = accountId;
+    }
 }
@@ -1,8 +1,13 @@
 package pl.kurs.bank.account.exception;
 
-import lombok.Value;
+import lombok.Getter;
 
-@Value
-public class AccountNotLockedException extends RuntimeException{
-    long accountId;
+@Getter
+public class AccountNotLockedException extends AccountRejectedException {
+    private final long accountId;
+
+    public AccountNotLockedException(long accountId) {
+        super(null);
+        this.accountId = accountId;
+    }
 }
@@ -1,6 +1,6 @@
 package pl.kurs.bank.account.exception;
 
-public class AccountOperationException extends RuntimeException {
+public class AccountOperationException extends AccountRejectedException {
     public AccountOperationException(String message) {
         super(message);
     }
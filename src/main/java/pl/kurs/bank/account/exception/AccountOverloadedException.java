@@ -0,0 +1,22 @@
+package pl.kurs.bank.account.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * The operation was refused by admission control, or waited too long in a write partition's queue, without being
+ * started; it may be sent again after {@code retryAfter}. {@code accountId} is null when the whole service, not
+ * one account, is over its limit.
+ */
+@Getter
+public class AccountOverloadedException extends AccountRejectedException {
+    private final Long accountId;
+    private final Duration retryAfter;
+
+    public AccountOverloadedException(Long accountId, Duration retryAfter) {
+        super(null);
+        this.accountId = accountId;
+        this.retryAfter = retryAfter;
+    }
+}
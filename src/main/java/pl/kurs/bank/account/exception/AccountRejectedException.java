@@ -0,0 +1,12 @@
+package pl.kurs.bank.account.exception;
+
+/**
+ * Base of every business rejection. A rejection is an expected outcome, not a bug, so no stack trace is captured:
+ * filling it in used to be the main cost of a refused request and nothing ever reads it.
+ */
+public abstract class AccountRejectedException extends RuntimeException {
+
+    protected AccountRejectedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,29 @@
+package pl.kurs.bank.account.interest;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Part of the account id space handled by one worker of an accrual run. {@code nextId} is moved forward in the
+ * transaction that accrues the accounts below it, so a resumed run starts exactly where the last commit ended.
+ */
+@Entity
+@Getter
+@Setter
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accrualDate", "rangeIndex"}))
+public class InterestAccrualRange {
+    @Id
+    @GeneratedValue
+    private long id;
+    private LocalDate accrualDate;
+    private int rangeIndex;
+    private long nextId;
+    // exclusive
+    private long endId;
+    private boolean completed;
+    private long accounts;
+    private long interestMinor;
+}
@@ -0,0 +1,15 @@
+package pl.kurs.bank.account.interest;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface InterestAccrualRangeRepository extends JpaRepository<InterestAccrualRange, Long> {
+
+    List<InterestAccrualRange> findAllByAccrualDateOrderByRangeIndex(LocalDate accrualDate);
+
+    @Query("SELECT DISTINCT r.accrualDate FROM InterestAccrualRange r WHERE r.completed = false")
+    List<LocalDate> findUnfinishedDates();
+}
@@ -0,0 +1,222 @@
+package pl.kurs.bank.account.interest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.MinorUnits;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.account.service.StripedBalanceService;
+import pl.kurs.bank.common.dto.InterestAccrualDto;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accrues one day of interest on every unlocked savings account. The id space is cut into ranges stored with the
+ * run and processed in parallel by a pool of workers; each range is walked in short chunks, every chunk locking,
+ * updating and committing its accounts together with the range's new position. Deposits and withdrawals only ever
+ * wait for one chunk, and a run stopped halfway continues from its last commit, here on startup or when started
+ * again, without accruing any account twice.
+ */
+@Service
+@Slf4j
+public class InterestAccrualService {
+
+    private static final long PPM = 1_000_000L;
+
+    private final AccountRepository accountRepository;
+    private final InterestAccrualRangeRepository rangeRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final StripedBalanceService stripedBalanceService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountMetrics accountMetrics;
+    private final InterestProperties properties;
+    private final ShardRouter shardRouter;
+    private final ExecutorService workers;
+    private final Map<LocalDate, CompletableFuture<InterestAccrualDto>> running = new ConcurrentHashMap<>();
+
+    public InterestAccrualService(AccountRepository accountRepository, InterestAccrualRangeRepository rangeRepository,
+                                  AccountUpdateStrategy updateStrategy, StripedBalanceService stripedBalanceService,
+                                  ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+                                  AccountMetrics accountMetrics, InterestProperties properties,
+                                  ShardRouter shardRouter) {
+        this.accountRepository = accountRepository;
+        this.rangeRepository = rangeRepository;
+        this.updateStrategy = updateStrategy;
+        this.stripedBalanceService = stripedBalanceService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.accountMetrics = accountMetrics;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(), runnable -> {
+            Thread thread = new Thread(runnable, "interest-accrual-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        if (!updateStrategy.isDatabaseBacked() || shardRouter.isSharded()) {
+            return;
+        }
+        for (LocalDate date : rangeRepository.findUnfinishedDates()) {
+            log.info("Resuming interest accrual for {}", date);
+            accrue(date);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Starts or resumes the run for {@code date} in the background, or joins it when it is already running.
+     */
+    public CompletableFuture<InterestAccrualDto> accrue(LocalDate date) {
+        if (!updateStrategy.isDatabaseBacked()) {
+            throw new AccountOperationException("Interest accrual is not available in this write mode.");
+        }
+        // a run and its ranges are kept in one database
+        if (shardRouter.isSharded()) {
+            throw new AccountOperationException("Interest accrual is not available with sharding.");
+        }
+        CompletableFuture<InterestAccrualDto> run = new CompletableFuture<>();
+        CompletableFuture<InterestAccrualDto> existing = running.putIfAbsent(date, run);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            launch(date).whenComplete((ignored, failure) -> {
+                running.remove(date);
+                if (failure != null) {
+                    log.error("Interest accrual for {} stopped, it resumes from its last chunk", date, failure);
+                    run.completeExceptionally(failure);
+                    return;
+                }
+                InterestAccrualDto status = getStatus(date);
+                log.info("Interest accrual for {} completed: {} accounts, {} interest", date, status.accounts(),
+                        MinorUnits.toDecimal(status.interest()));
+                run.complete(status);
+            });
+        } catch (RuntimeException e) {
+            running.remove(date);
+            throw e;
+        }
+        return run;
+    }
+
+    public InterestAccrualDto getStatus(LocalDate date) {
+        List<InterestAccrualRange> ranges = rangeRepository.findAllByAccrualDateOrderByRangeIndex(date);
+        if (ranges.isEmpty()) {
+            return new InterestAccrualDto(date, running.containsKey(date) ? InterestAccrualDto.Status.RUNNING
+                    : InterestAccrualDto.Status.NOT_STARTED, 0, 0, 0, 0);
+        }
+        int completed = (int) ranges.stream().filter(InterestAccrualRange::isCompleted).count();
+        InterestAccrualDto.Status status = completed == ranges.size() ? InterestAccrualDto.Status.COMPLETED
+                : running.containsKey(date) ? InterestAccrualDto.Status.RUNNING : InterestAccrualDto.Status.INTERRUPTED;
+        return new InterestAccrualDto(date, status, ranges.size(), completed,
+                ranges.stream().mapToLong(InterestAccrualRange::getAccounts).sum(),
+                ranges.stream().mapToLong(InterestAccrualRange::getInterestMinor).sum());
+    }
+
+    private CompletableFuture<Void> launch(LocalDate date) {
+        List<InterestAccrualRange> ranges = transactionTemplate.execute(status -> {
+            List<InterestAccrualRange> existing = rangeRepository.findAllByAccrualDateOrderByRangeIndex(date);
+            return existing.isEmpty() ? rangeRepository.saveAll(split(date)) : existing;
+        });
+        CompletableFuture<?>[] pending = ranges.stream()
+                .filter(range -> !range.isCompleted())
+                .map(range -> CompletableFuture.runAsync(() -> process(range.getId()), workers))
+                .toArray(CompletableFuture[]::new);
+        log.info("Interest accrual for {} started with {} of {} ranges to go", date, pending.length, ranges.size());
+        return CompletableFuture.allOf(pending);
+    }
+
+    // equal slices of the id span of savings accounts, at least one id wide
+    private List<InterestAccrualRange> split(LocalDate date) {
+        long from = accountRepository.findMinId(Account.Type.SAVINGS);
+        long to = accountRepository.findMaxId(Account.Type.SAVINGS) + 1;
+        int count = (int) Math.max(1, Math.min((long) properties.getWorkers() * properties.getRangesPerWorker(),
+                to - from));
+        long width = Math.max(1, (to - from + count - 1) / count);
+        List<InterestAccrualRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            InterestAccrualRange range = new InterestAccrualRange();
+            range.setAccrualDate(date);
+            range.setRangeIndex(i);
+            range.setNextId(Math.min(to, from + i * width));
+            range.setEndId(i == count - 1 ? to : Math.min(to, from + (i + 1) * width));
+            range.setCompleted(range.getNextId() >= range.getEndId());
+            ranges.add(range);
+        }
+        return ranges;
+    }
+
+    private void process(long rangeId) {
+        boolean completed = false;
+        while (!completed && !Thread.currentThread().isInterrupted()) {
+            completed = accountMetrics.recordTransaction("interest", () -> transactionTemplate.execute(
+                    status -> accrueChunk(rangeRepository.findById(rangeId).orElseThrow())));
+        }
+    }
+
+    // the dirty accounts are flushed as JDBC batches on commit, together with the range's new position
+    private boolean accrueChunk(InterestAccrualRange range) {
+        List<Account> accounts = accountMetrics.recordLockWait("interest", () -> accountRepository.findUnlockedForUpdate(
+                Account.Type.SAVINGS, range.getNextId(), range.getEndId(), PageRequest.ofSize(properties.getChunkSize())));
+        long accrued = 0;
+        for (Account account : accounts) {
+            long interest = interest(stripedBalanceService.totalBalance(account));
+            if (interest > 0) {
+                account.setBalanceMinor(MinorUnits.add(account.getBalanceMinor(), interest));
+                accrued += interest;
+                eventPublisher.publishEvent(new AccountChangedEvent(account.getId()));
+            }
+        }
+        if (accrued > 0) {
+            eventPublisher.publishEvent(new AccountTotalsChangedEvent(Account.Type.SAVINGS, false, 0, accrued));
+        }
+        range.setAccounts(range.getAccounts() + accounts.size());
+        range.setInterestMinor(range.getInterestMinor() + accrued);
+        if (accounts.size() < properties.getChunkSize()) {
+            range.setNextId(range.getEndId());
+            range.setCompleted(true);
+        } else {
+            range.setNextId(accounts.get(accounts.size() - 1).getId() + 1);
+        }
+        return range.isCompleted();
+    }
+
+    // rounded down; split so that balance * rate cannot overflow
+    private long interest(long balance) {
+        if (balance <= 0) {
+            return 0;
+        }
+        long rate = properties.getRatePpm();
+        return balance / PPM * rate + balance % PPM * rate / PPM;
+    }
+}
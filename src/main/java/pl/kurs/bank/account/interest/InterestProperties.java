@@ -0,0 +1,18 @@
+package pl.kurs.bank.account.interest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.interest")
+public class InterestProperties {
+    // interest added by one accrual run, in millionths of the balance, rounded down to a minor unit
+    private long ratePpm = 100;
+    private int workers = 4;
+    // id ranges per worker, more of them even out ranges that hold more savings accounts than others
+    private int rangesPerWorker = 4;
+    // accounts locked, updated and committed together; keeps every row lock short
+    private int chunkSize = 200;
+}
@@ -0,0 +1,201 @@
+package pl.kurs.bank.account.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Event-sourced write mode. Account state lives in memory and every change is appended to the
+ * {@link OperationJournal} instead of updating the account row in place; the journal doubles as the audit trail.
+ * A background task snapshots all accounts so startup only replays the journal written since the last snapshot.
+ * Accounts the journal has never seen are loaded from the database on first use.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account.write-mode", havingValue = "journal")
+@Slf4j
+public class JournalAccountStrategy implements AccountUpdateStrategy {
+
+    private final AccountRepository accountRepository;
+    private final JournalProperties properties;
+    private final OperationJournal journal;
+    private final SnapshotStore snapshots;
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long snapshotSequence;
+
+    @Autowired
+    public JournalAccountStrategy(AccountRepository accountRepository, JournalProperties properties) {
+        this(accountRepository, properties, new OperationJournal(properties.getDirectory(), properties.isFsync()));
+    }
+
+    JournalAccountStrategy(AccountRepository accountRepository, JournalProperties properties, OperationJournal journal) {
+        this.accountRepository = accountRepository;
+        this.properties = properties;
+        this.journal = journal;
+        this.snapshots = new SnapshotStore(properties.getDirectory());
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(properties.getDirectory());
+        snapshotSequence = snapshots.load(record -> accounts.put(record.accountId(), record.toAccount()));
+        journal.open(snapshotSequence, this::replay);
+        long interval = properties.getSnapshotInterval().toMillis();
+        snapshotter.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Recovered {} accounts from snapshot {} and journal up to {}",
+                accounts.size(), snapshotSequence, journal.lastSequence());
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        snapshotter.shutdown();
+        snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot();
+        journal.close();
+    }
+
+    // the record is appended and synced under the account's monitor, so the journal order matches the order of
+    // changes and nobody sees a change before it is durable; a failed append or sync undoes it, the journal then
+    // refuses every later write. The fsync is still shared with the writers of every other account.
+    @Override
+    public void update(long accountId, Consumer<Account> operation) {
+        Account account = account(accountId);
+        synchronized (account) {
+            JournalRecord before = JournalRecord.of(0, account);
+            try {
+                durably(() -> {
+                    operation.accept(account);
+                    journal.sync(journal.append(account));
+                });
+            } catch (RuntimeException e) {
+                before.applyTo(account);
+                throw e;
+            }
+        }
+    }
+    @Override
+    public Optional<Account> find(long accountId) {
+        Account account = account(accountId);
+        synchronized (account) {
+            return Optional.of(copyOf(account));
+        }
+    }
+
+    // accounts the journal has never seen are current in the database
+    @Override
+    public Optional<Account> findLoaded(long accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return Optional.empty();
+        }
+        synchronized (account) {
+            return Optional.of(copyOf(account));
+        }
+    }
+
+    @Override
+    public boolean isDatabaseBacked() {
+        return false;
+    }
+
+    /**
+     * Writes all accounts to a new snapshot. Writers keep going meanwhile, so the snapshot may already contain
+     * changes made after the sequence it is labelled with; replaying those records again is harmless because
+     * each one carries the account's absolute state.
+     */
+    synchronized void snapshot() {
+        if (journal.lastSequence() == snapshotSequence) {
+            return;
+        }
+        try {
+            long sequence = journal.rotate();
+            snapshots.write(sequence, accounts.values());
+            snapshotSequence = sequence;
+            log.info("Snapshot of {} accounts written at journal sequence {}", accounts.size(), sequence);
+        } catch (IOException | RuntimeException e) {
+            log.error("Account snapshot failed, the journal still holds every change", e);
+        }
+    }
+
+    /**
+     * Runs the write as if it were a transaction committed by the journal sync: the events its operation publishes
+     * reach the transactional listeners (statistics, read cache, locked index) only once the record is durable, and
+     * never when it is not. A caller already inside a transaction keeps the events bound to it; the failure thrown
+     * here rolls that transaction back.
+     */
+    private static void durably(Runnable write) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            write.run();
+            return;
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        List<TransactionSynchronization> synchronizations;
+        try {
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                        TransactionSynchronization.STATUS_ROLLED_BACK);
+                throw e;
+            }
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(TransactionSynchronization::beforeCompletion);
+        TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private Account account(long accountId) {
+        Account account = accounts.computeIfAbsent(accountId, id -> accountRepository.findById(id)
+                .map(JournalAccountStrategy::copyOf)
+                .orElse(null));
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return account;
+    }
+
+    private void replay(JournalRecord record) {
+        accounts.compute(record.accountId(), (id, account) -> {
+            if (account == null) {
+                return record.toAccount();
+            }
+            record.applyTo(account);
+            return account;
+        });
+    }
+
+    private static Account copyOf(Account account) {
+        return JournalRecord.of(0, account).toAccount();
+    }
+}
@@ -0,0 +1,18 @@
+package pl.kurs.bank.account.journal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.journal")
+public class JournalProperties {
+    private Path directory = Path.of(System.getProperty("user.home"), "bank-journal-zywko");
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+    // force every group of appends to disk before acknowledging them
+    private boolean fsync = true;
+}
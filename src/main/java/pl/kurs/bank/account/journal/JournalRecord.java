@@ -0,0 +1,93 @@
+package pl.kurs.bank.account.journal;
+
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.common.log.RecordCodec;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * State of one account after an operation. Records carry absolute values rather than deltas, so replaying
+ * them in sequence order over any older state, including a snapshot taken while writes continued, is exact.
+ */
+record JournalRecord(long sequence, long timestamp, long accountId, long balance, LocalDateTime creationDate,
+                     Account.Type type, boolean locked) {
+
+    static final int SIZE = 8 + 8 + 8 + 8 + 8 + 1 + 1 + 4;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    static final RecordCodec<JournalRecord> CODEC = new RecordCodec<>() {
+        @Override
+        public int size() {
+            return SIZE;
+        }
+
+        @Override
+        public long sequence(JournalRecord record) {
+            return record.sequence();
+        }
+
+        @Override
+        public void write(JournalRecord record, ByteBuffer buffer) {
+            record.writeTo(buffer);
+        }
+
+        @Override
+        public JournalRecord read(ByteBuffer buffer) {
+            return readFrom(buffer);
+        }
+    };
+
+    static JournalRecord of(long sequence, Account account) {
+        return new JournalRecord(sequence, System.currentTimeMillis(), account.getId(), account.getBalanceMinor(),
+                account.getCreationDate(), account.getType(), account.isLocked());
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(sequence)
+                .putLong(timestamp)
+                .putLong(accountId)
+                .putLong(balance)
+                .putLong(creationDate == null ? NO_DATE : creationDate.toInstant(ZoneOffset.UTC).toEpochMilli())
+                .put((byte) (type == null ? -1 : type.ordinal()))
+                .put((byte) (locked ? 1 : 0));
+        buffer.putInt(RecordCodec.checksum(buffer, start, SIZE - 4));
+    }
+
+    // null when the bytes are a torn or corrupted write
+    static JournalRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.getInt(start + SIZE - 4) != RecordCodec.checksum(buffer, start, SIZE - 4)) {
+            return null;
+        }
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        long accountId = buffer.getLong();
+        long balance = buffer.getLong();
+        long creationMillis = buffer.getLong();
+        byte type = buffer.get();
+        boolean locked = buffer.get() == 1;
+        buffer.getInt();
+        LocalDateTime creationDate = creationMillis == NO_DATE ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(creationMillis), ZoneOffset.UTC);
+        return new JournalRecord(sequence, timestamp, accountId, balance, creationDate,
+                type < 0 ? null : Account.Type.values()[type], locked);
+    }
+
+    Account toAccount() {
+        Account account = new Account();
+        applyTo(account);
+        return account;
+    }
+
+    void applyTo(Account account) {
+        account.setId(accountId);
+        account.setBalanceMinor(balance);
+        account.setCreationDate(creationDate);
+        account.setType(type);
+        account.setLocked(locked);
+    }
+}
@@ -0,0 +1,21 @@
+package pl.kurs.bank.account.journal;
+
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.common.log.SegmentedLog;
+
+import java.nio.file.Path;
+
+/**
+ * Log of {@link JournalRecord}s. Segments are never deleted, they are the audit trail; a {@link #rotate()} before
+ * each snapshot lets the next start skip the segments the snapshot covers.
+ */
+class OperationJournal extends SegmentedLog<JournalRecord> {
+
+    OperationJournal(Path directory, boolean fsync) {
+        super(directory, "journal-", JournalRecord.CODEC, fsync);
+    }
+
+    long append(Account account) {
+        return append(sequence -> JournalRecord.of(sequence, account));
+    }
+}
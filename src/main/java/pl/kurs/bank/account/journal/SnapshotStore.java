@@ -0,0 +1,106 @@
+package pl.kurs.bank.account.journal;
+
+import pl.kurs.bank.account.model.Account;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Full copies of every account's state, each labelled with the journal sequence it starts from. A snapshot is
+ * written to a temporary file and moved into place only once it is on disk, so a crash never leaves a partial one.
+ */
+class SnapshotStore {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the newest snapshot.
+     *
+     * @return the journal sequence the snapshot covers, 0 when there is none
+     */
+    long load(Consumer<JournalRecord> accounts) {
+        try {
+            Optional<Path> latest = snapshots().stream().reduce((first, second) -> second);
+            if (latest.isEmpty()) {
+                return 0;
+            }
+            ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(latest.get()));
+            while (records.remaining() >= JournalRecord.SIZE) {
+                JournalRecord record = JournalRecord.readFrom(records);
+                if (record == null) {
+                    throw new IllegalStateException("Corrupted account snapshot " + latest.get());
+                }
+                accounts.accept(record);
+            }
+            return sequence(latest.get());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void write(long sequence, Collection<Account> accounts) throws IOException {
+        Path temporary = directory.resolve(PREFIX + "tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(JournalRecord.SIZE * 1024);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Account account : accounts) {
+                if (!buffer.hasRemaining()) {
+                    flush(buffer, channel);
+                }
+                synchronized (account) {
+                    JournalRecord.of(sequence, account).writeTo(buffer);
+                }
+            }
+            flush(buffer, channel);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(PREFIX + String.format("%020d", sequence) + SUFFIX),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path older : snapshots()) {
+            if (sequence(older) < sequence) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().matches(PREFIX + "\\d+" + SUFFIX))
+                    .sorted(Comparator.comparingLong(SnapshotStore::sequence))
+                    .toList();
+        }
+    }
+
+    private static long sequence(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,104 @@
+package pl.kurs.bank.account.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.kurs.bank.account.model.event.AccountLockChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bitmap of locked account ids, so requests for a locked account are refused without a transaction or a
+ * connection. Ids are dense, so the bits live in pages of 64Ki ids allocated on first use and read without locking.
+ * <p>
+ * A change is applied when its transaction is about to commit, while it still holds the account's row lock, so
+ * lock and unlock of the same account reach the index in commit order; a rolled back change clears the bit. A bit
+ * that is missing only sends the request on to the database, which still checks the lock itself. The index is
+ * rebuilt from the database on startup and stays empty for write modes that keep accounts elsewhere.
+ */
+@Component
+@Slf4j
+public class LockedAccountIndex {
+
+    private static final int PAGE_BITS = 16;
+    private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+
+    private final AccountRepository accountRepository;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final Map<Long, AtomicLongArray> pages = new ConcurrentHashMap<>();
+
+    public LockedAccountIndex(AccountRepository accountRepository, AccountUpdateStrategy updateStrategy,
+                              ShardRouter shardRouter) {
+        this.accountRepository = accountRepository;
+        this.shardRouter = shardRouter;
+        this.enabled = updateStrategy.isDatabaseBacked();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        pages.clear();
+        int locked = 0;
+        for (List<Long> shard : shardRouter.onEachShard(accountRepository::findLockedAccountIds)) {
+            for (long accountId : shard) {
+                set(accountId, true);
+                locked++;
+            }
+        }
+        log.info("Locked account index rebuilt with {} accounts", locked);
+    }
+
+    public boolean isLocked(long accountId) {
+        if (!enabled || accountId < 0) {
+            return false;
+        }
+        AtomicLongArray page = pages.get(accountId >>> PAGE_BITS);
+        return page != null && (page.get(wordIndex(accountId)) & (1L << accountId)) != 0;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onLockChanged(AccountLockChangedEvent event) {
+        if (enabled) {
+            set(event.accountId(), event.locked());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onLockChangeRolledBack(AccountLockChangedEvent event) {
+        if (enabled) {
+            set(event.accountId(), false);
+        }
+    }
+
+    void set(long accountId, boolean locked) {
+        if (accountId < 0) {
+            return;
+        }
+        long bit = 1L << accountId;
+        if (locked) {
+            pages.computeIfAbsent(accountId >>> PAGE_BITS, page -> new AtomicLongArray(1 << (PAGE_BITS - 6)))
+                    .accumulateAndGet(wordIndex(accountId), bit, (word, mask) -> word | mask);
+        } else {
+            AtomicLongArray page = pages.get(accountId >>> PAGE_BITS);
+            if (page != null) {
+                page.accumulateAndGet(wordIndex(accountId), bit, (word, mask) -> word & ~mask);
+            }
+        }
+    }
+
+    private static int wordIndex(long accountId) {
+        return (int) ((accountId & PAGE_MASK) >>> 6);
+    }
+}
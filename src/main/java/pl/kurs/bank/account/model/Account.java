@@ -1,8 +1,13 @@
 package pl.kurs.bank.account.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import pl.kurs.bank.account.exception.AccountLockedException;
@@ -11,16 +16,28 @@ import pl.kurs.bank.account.exception.AccountOperationException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Entity
 @Getter
 @Setter
+@DynamicUpdate
 @EntityListeners(AuditingEntityListener.class)
+@Table(indexes = @Index(name = "idx_account_type_locked_id", columnList = "type, locked, id"))
 public class Account {
+    // pooled sequence: ids are handed out 50 at a time without a round trip, so Hibernate can batch the inserts;
+    // with sharding every shard has its own sequence and its own blocks
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "account_seq")
+    @GenericGenerator(name = "account_seq", strategy = "pl.kurs.bank.account.shard.ShardedSequenceGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "account_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+            })
     private long id;
-    private BigDecimal balance;
+    @Column(name = "balance")
+    @JsonIgnore
+    private long balanceMinor;
     @CreatedDate
     private LocalDateTime creationDate;
 
@@ -29,19 +46,47 @@ public class Account {
 
     private boolean locked;
 
+    @Version
+    @JsonIgnore
+    private long version;
 
+    // number of AccountSlot rows holding part of the balance, 0 for a plain account
+    @JsonIgnore
+    private int stripes;
 
-    public void withdraw(BigDecimal amount) {
+
+    public BigDecimal getBalance() {
+        return MinorUnits.toDecimal(balanceMinor);
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balanceMinor = MinorUnits.fromDecimal(balance);
+    }
+
+    public void withdraw(long amount) {
         checkLock();
-        if (balance.compareTo(amount) < 0) {
+        if (balanceMinor < amount) {
             throw new AccountOperationException("Unable to withdraw!");
         }
-        this.balance = balance.subtract(amount);
+        this.balanceMinor = MinorUnits.subtract(balanceMinor, amount);
+    }
+
+    public void deposit(long amount) {
+        checkLock();
+        this.balanceMinor = MinorUnits.add(balanceMinor, amount);
+    }
+
+    public int slotForDeposit() {
+        checkLock();
+        return ThreadLocalRandom.current().nextInt(stripes);
     }
 
-    public void deposit(BigDecimal amount) {
+    public void stripe(int stripes) {
         checkLock();
-        this.balance = balance.add(amount);
+        if (stripes < this.stripes) {
+            throw new AccountOperationException("Unable to reduce stripes!");
+        }
+        this.stripes = stripes;
     }
 
     public void lock() {
@@ -0,0 +1,34 @@
+package pl.kurs.bank.account.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import pl.kurs.bank.account.exception.AccountOperationException;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accountId", "slot"}))
+public class AccountSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+    private long accountId;
+    private int slot;
+    @Column(name = "balance")
+    private long balanceMinor;
+
+    public AccountSlot(long accountId, int slot) {
+        this.accountId = accountId;
+        this.slot = slot;
+    }
+
+    public void withdraw(long amount) {
+        if (balanceMinor < amount) {
+            throw new AccountOperationException("Unable to withdraw!");
+        }
+        this.balanceMinor = MinorUnits.subtract(balanceMinor, amount);
+    }
+}
@@ -0,0 +1,7 @@
+package pl.kurs.bank.account.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+public record AccountTotals(Account.Type type, boolean locked, long accounts,
+                            @JsonSerialize(using = MinorUnitsSerializer.class) long balance) {
+}
@@ -0,0 +1,13 @@
+package pl.kurs.bank.account.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDateTime;
+
+@JsonSerialize(using = AccountViewSerializer.class)
+public record AccountView(long id, long balance, LocalDateTime creationDate, Account.Type type, boolean locked) {
+
+    public static AccountView from(Account account, long balance) {
+        return new AccountView(account.getId(), balance, account.getCreationDate(), account.getType(), account.isLocked());
+    }
+}
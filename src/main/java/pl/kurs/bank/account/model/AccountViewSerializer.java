@@ -0,0 +1,49 @@
+package pl.kurs.bank.account.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes the fields of an {@link AccountView} directly with pre-encoded names instead of going through
+ * property introspection. Only the creation date is delegated, so it keeps the application's date format.
+ */
+public class AccountViewSerializer extends StdSerializer<AccountView> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString BALANCE = new SerializedString("balance");
+    private static final SerializedString CREATION_DATE = new SerializedString("creationDate");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString LOCKED = new SerializedString("locked");
+
+    public AccountViewSerializer() {
+        super(AccountView.class);
+    }
+
+    @Override
+    public void serialize(AccountView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(view);
+        gen.writeFieldName(ID);
+        gen.writeNumber(view.id());
+        gen.writeFieldName(BALANCE);
+        gen.writeNumber(MinorUnits.toDecimal(view.balance()));
+        gen.writeFieldName(CREATION_DATE);
+        if (view.creationDate() == null) {
+            gen.writeNull();
+        } else {
+            provider.findValueSerializer(view.creationDate().getClass()).serialize(view.creationDate(), gen, provider);
+        }
+        gen.writeFieldName(TYPE);
+        if (view.type() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(view.type().name());
+        }
+        gen.writeFieldName(LOCKED);
+        gen.writeBoolean(view.locked());
+        gen.writeEndObject();
+    }
+}
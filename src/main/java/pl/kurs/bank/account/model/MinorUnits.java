@@ -0,0 +1,52 @@
+package pl.kurs.bank.account.model;
+
+import pl.kurs.bank.account.exception.AccountOperationException;
+
+import java.math.BigDecimal;
+
+/**
+ * Money inside the domain is a {@code long} number of minor units (cents). {@link BigDecimal} only appears at the edges,
+ * when JSON is read or written, so the hot path does no allocation and every overflow is detected.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    public static long fromDecimal(BigDecimal amount) {
+        try {
+            return amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new AccountOperationException("Amount must be a whole number of minor units.");
+        }
+    }
+
+    // shortest scale that keeps the value, so whole amounts are written as 1000 and not 1000.00
+    public static BigDecimal toDecimal(long minorUnits) {
+        if (minorUnits % 100 == 0) {
+            return BigDecimal.valueOf(minorUnits / 100);
+        }
+        if (minorUnits % 10 == 0) {
+            return BigDecimal.valueOf(minorUnits / 10, 1);
+        }
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static long add(long augend, long addend) {
+        try {
+            return Math.addExact(augend, addend);
+        } catch (ArithmeticException e) {
+            throw new AccountOperationException("Balance overflow.");
+        }
+    }
+
+    public static long subtract(long minuend, long subtrahend) {
+        try {
+            return Math.subtractExact(minuend, subtrahend);
+        } catch (ArithmeticException e) {
+            throw new AccountOperationException("Balance overflow.");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package pl.kurs.bank.account.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public class MinorUnitsSerializer extends StdSerializer<Long> {
+
+    public MinorUnitsSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeNumber(MinorUnits.toDecimal(value));
+    }
+}
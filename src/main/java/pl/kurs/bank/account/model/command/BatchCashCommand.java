@@ -0,0 +1,40 @@
+package pl.kurs.bank.account.model.command;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import pl.kurs.bank.account.model.MinorUnits;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+public class BatchCashCommand {
+    private List<Entry> commands = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Entry {
+        private Operation operation;
+        private long accountId;
+        @JsonIgnore
+        private long amountMinor;
+
+        public BigDecimal getAmount() {
+            return MinorUnits.toDecimal(amountMinor);
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amountMinor = MinorUnits.fromDecimal(amount);
+        }
+    }
+
+    public enum Operation {
+        DEPOSIT, WITHDRAW
+    }
+}
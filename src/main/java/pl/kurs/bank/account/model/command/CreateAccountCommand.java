@@ -0,0 +1,27 @@
+package pl.kurs.bank.account.model.command;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.MinorUnits;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@ToString
+public class CreateAccountCommand {
+    private Account.Type type;
+    @JsonIgnore
+    private long balanceMinor;
+
+    public BigDecimal getBalance() {
+        return MinorUnits.toDecimal(balanceMinor);
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balanceMinor = MinorUnits.fromDecimal(balance);
+    }
+}
@@ -1,8 +1,10 @@
 package pl.kurs.bank.account.model.command;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import pl.kurs.bank.account.model.MinorUnits;
 
 import java.math.BigDecimal;
 
@@ -11,5 +13,14 @@ import java.math.BigDecimal;
 @ToString
 public class DepositCashCommand {
     private long accountId;
-    private BigDecimal amount;
+    @JsonIgnore
+    private long amountMinor;
+
+    public BigDecimal getAmount() {
+        return MinorUnits.toDecimal(amountMinor);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amountMinor = MinorUnits.fromDecimal(amount);
+    }
 }
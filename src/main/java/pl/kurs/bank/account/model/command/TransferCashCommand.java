@@ -0,0 +1,27 @@
+package pl.kurs.bank.account.model.command;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import pl.kurs.bank.account.model.MinorUnits;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@ToString
+public class TransferCashCommand {
+    private long fromAccountId;
+    private long toAccountId;
+    @JsonIgnore
+    private long amountMinor;
+
+    public BigDecimal getAmount() {
+        return MinorUnits.toDecimal(amountMinor);
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amountMinor = MinorUnits.fromDecimal(amount);
+    }
+}
@@ -0,0 +1,4 @@
+package pl.kurs.bank.account.model.event;
+
+public record AccountChangedEvent(long accountId) {
+}
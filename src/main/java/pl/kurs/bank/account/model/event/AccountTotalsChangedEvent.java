@@ -0,0 +1,7 @@
+package pl.kurs.bank.account.model.event;
+
+import pl.kurs.bank.account.model.Account;
+
+// change of the account count and total balance of one type and lock state; a lock change is two of them
+public record AccountTotalsChangedEvent(Account.Type type, boolean locked, long accounts, long balance) {
+}
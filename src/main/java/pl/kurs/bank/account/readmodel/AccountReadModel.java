@@ -0,0 +1,209 @@
+package pl.kurs.bank.account.readmodel;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Account views kept in memory and served to readers without a connection. Views sit in pages of 4Ki ids indexed
+ * by the id itself. Committed changes only mark their account; a single projector thread reloads the marked
+ * accounts in batches and publishes how far it has got as a {@link ReadModelMarker}, so reads never wait for
+ * writers and writers never wait for the projection.
+ * <p>
+ * The model is filled from the database on startup. An account it does not hold yet, one created since, is read
+ * through once and kept. A reload always sees the latest commit, so changes projected out of order cannot leave
+ * an older view behind.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account.read-mode", havingValue = "model")
+@Slf4j
+public class AccountReadModel {
+
+    private static final int PAGE_BITS = 12;
+    private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+
+    private final AccountRepository accountRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadModelProperties properties;
+    private final ShardRouter shardRouter;
+    private final Map<Long, AtomicReferenceArray<AccountView>> pages = new ConcurrentHashMap<>();
+    // accounts changed by a committed transaction and not reloaded yet
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong published = new AtomicLong();
+    private volatile Progress progress = new Progress(0, System.nanoTime());
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Thread projector;
+
+    public AccountReadModel(AccountRepository accountRepository, AccountUpdateStrategy updateStrategy,
+                            TransactionTemplate transactionTemplate, ReadModelProperties properties,
+                            ShardRouter shardRouter, MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.updateStrategy = updateStrategy;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.projector = new Thread(this::run, "account-read-model");
+        this.projector.setDaemon(true);
+        Gauge.builder("bank.account.read-model.pending", () -> marker().pending())
+                .description("Committed account changes not visible in the read model yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void check() {
+        if (!updateStrategy.isDatabaseBacked()) {
+            throw new IllegalStateException("The read model needs a write mode that keeps accounts in the database.");
+        }
+    }
+
+    // changes committed meanwhile are already marked and are projected right after
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long loaded = shardRouter.onEachShard(() -> transactionTemplate.execute(status -> {
+            try (Stream<AccountView> views = accountRepository.streamViews(null, null)) {
+                return views.filter(view -> putIfAbsent(view) == null).count();
+            }
+        })).stream().mapToLong(Long::longValue).sum();
+        log.info("Read model loaded with {} accounts", loaded);
+        projector.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        projector.interrupt();
+    }
+
+    public AccountView get(long accountId, Supplier<AccountView> loader) {
+        AtomicReferenceArray<AccountView> page = accountId < 0 ? null : pages.get(accountId >>> PAGE_BITS);
+        AccountView view = page == null ? null : page.get(slot(accountId));
+        if (view != null) {
+            return view;
+        }
+        AccountView loaded = loader.get();
+        AccountView existing = putIfAbsent(loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    public ReadModelMarker marker() {
+        Progress current = progress;
+        long pending = published.get() - current.sequence();
+        long staleness = pending == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.asOfNanos());
+        return new ReadModelMarker(current.sequence(), pending, staleness);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        changed.add(event.accountId());
+        published.incrementAndGet();
+        wakeUp.release();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                wakeUp.acquire();
+                wakeUp.drainPermits();
+                try {
+                    project();
+                } catch (RuntimeException e) {
+                    log.error("Read model projection failed, retrying in {}", properties.getRetryInterval(), e);
+                    Thread.sleep(properties.getRetryInterval().toMillis());
+                    wakeUp.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reloads every account marked so far. All changes counted before the start are then visible, which is what
+     * the new marker claims; an account marked again meanwhile is simply reloaded by the next round.
+     */
+    void project() {
+        long asOfNanos = System.nanoTime();
+        long sequence = published.get();
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> iterator = changed.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        try {
+            ids.stream()
+                    .collect(Collectors.groupingBy(shardRouter::shardOf))
+                    .forEach((shard, shardIds) -> shardRouter.onShard(shard, () -> {
+                        reload(shardIds);
+                        return null;
+                    }));
+        } catch (RuntimeException e) {
+            changed.addAll(ids);
+            throw e;
+        }
+        progress = new Progress(sequence, asOfNanos);
+    }
+
+    private void reload(List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += properties.getBatchSize()) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + properties.getBatchSize()));
+            Map<Long, AccountView> views = accountRepository.findViewsByIds(batch).stream()
+                    .collect(Collectors.toMap(AccountView::id, Function.identity()));
+            batch.forEach(id -> put(id, views.get(id)));
+        }
+    }
+
+    private AccountView putIfAbsent(AccountView view) {
+        return page(view.id()).compareAndExchange(slot(view.id()), null, view);
+    }
+
+    private void put(long accountId, AccountView view) {
+        if (view != null) {
+            page(accountId).set(slot(accountId), view);
+            return;
+        }
+        AtomicReferenceArray<AccountView> page = pages.get(accountId >>> PAGE_BITS);
+        if (page != null) {
+            page.set(slot(accountId), null);
+        }
+    }
+
+    private AtomicReferenceArray<AccountView> page(long accountId) {
+        return pages.computeIfAbsent(accountId >>> PAGE_BITS, page -> new AtomicReferenceArray<>(1 << PAGE_BITS));
+    }
+
+    private static int slot(long accountId) {
+        return (int) (accountId & PAGE_MASK);
+    }
+
+    private record Progress(long sequence, long asOfNanos) {
+    }
+}
@@ -0,0 +1,8 @@
+package pl.kurs.bank.account.readmodel;
+
+/**
+ * How far the read model has got: every change up to {@code sequence} is visible, {@code pending} changes have
+ * committed since, and the oldest of them is at most {@code stalenessMillis} old.
+ */
+public record ReadModelMarker(long sequence, long pending, long stalenessMillis) {
+}
@@ -0,0 +1,17 @@
+package pl.kurs.bank.account.readmodel;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.read-model")
+public class ReadModelProperties {
+    // changed accounts reloaded with one query
+    private int batchSize = 500;
+    // pause before a failed projection is tried again
+    private Duration retryInterval = Duration.ofSeconds(1);
+}
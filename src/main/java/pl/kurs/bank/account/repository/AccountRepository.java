@@ -1,16 +1,82 @@
 package pl.kurs.bank.account.repository;
 
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountTotals;
+import pl.kurs.bank.account.model.AccountView;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
+    // read-only rows built straight from the result set; a striped account's balance includes its slots
+    String VIEW_SELECT = "SELECT new pl.kurs.bank.account.model.AccountView(a.id, a.balanceMinor + "
+            + "COALESCE((SELECT SUM(s.balanceMinor) FROM AccountSlot s WHERE s.accountId = a.id), 0), "
+            + "a.creationDate, a.type, a.locked) FROM Account a ";
+    String VIEW_FILTER = "(:type IS NULL OR a.type = :type) AND (:locked IS NULL OR a.locked = :locked) ";
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM Account a WHERE a.id = :id")
     Optional<Account> findByIdWithPessimisticLock(Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdWithPessimisticLock(Collection<Long> ids);
+
+    // one chunk of an interest accrual run; locked accounts are left out and keep their balance
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.type = :type AND a.locked = false AND a.id >= :fromId AND a.id < :toId "
+            + "ORDER BY a.id")
+    List<Account> findUnlockedForUpdate(Account.Type type, long fromId, long toId, Pageable page);
+
+    @Query("SELECT COALESCE(MIN(a.id), 0) FROM Account a WHERE a.type = :type")
+    long findMinId(Account.Type type);
+
+    @Query("SELECT COALESCE(MAX(a.id), -1) FROM Account a WHERE a.type = :type")
+    long findMaxId(Account.Type type);
+
+    // a single statement and no managed entity, the read path of GET /accounts/{id}
+    @Query(VIEW_SELECT + "WHERE a.id = :id")
+    Optional<AccountView> findViewById(long id);
+
+    @Query(VIEW_SELECT + "WHERE a.id IN :ids")
+    List<AccountView> findViewsByIds(Collection<Long> ids);
+
+    @Query(VIEW_SELECT + "WHERE a.id > :afterId AND " + VIEW_FILTER + "ORDER BY a.id")
+    List<AccountView> findViewsAfter(long afterId, Account.Type type, Boolean locked, Pageable page);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW_SELECT + "WHERE " + VIEW_FILTER + "ORDER BY a.id")
+    Stream<AccountView> streamViews(Account.Type type, Boolean locked);
+
+    @Query("SELECT new pl.kurs.bank.account.model.AccountTotals(a.type, a.locked, COUNT(a), SUM(a.balanceMinor + "
+            + "COALESCE((SELECT SUM(s.balanceMinor) FROM AccountSlot s WHERE s.accountId = a.id), 0))) "
+            + "FROM Account a WHERE a.type IS NOT NULL GROUP BY a.type, a.locked")
+    List<AccountTotals> sumByTypeAndLocked();
+
+    // bumps the version too, so a concurrent optimistic update of the same row fails instead of overwriting it
+    @Modifying
+    @Query("UPDATE Account a SET a.balanceMinor = a.balanceMinor + :amount, a.version = a.version + 1 WHERE a.id = :id")
+    int addToBalance(long id, long amount);
+
+    @Query("SELECT a.id FROM Account a WHERE a.locked = true")
+    List<Long> findLockedAccountIds();
+
+    // the committed lock state, not the entity possibly held by the persistence context
+    @Query("SELECT a.locked FROM Account a WHERE a.id = :id")
+    Optional<Boolean> findLockedById(long id);
+
+    @Query("SELECT a.id FROM Account a WHERE a.stripes > 0")
+    List<Long> findStripedAccountIds();
 }
@@ -0,0 +1,35 @@
+package pl.kurs.bank.account.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import pl.kurs.bank.account.model.AccountSlot;
+
+import java.util.List;
+
+public interface AccountSlotRepository extends JpaRepository<AccountSlot, Long> {
+
+    // applies only while the account's committed row is unlocked and the slot stays within a long, 0 rows updated
+    // means it is locked or the slot would overflow
+    default int addToSlot(long accountId, int slot, long amount) {
+        return addToSlot(accountId, slot, amount, Long.MAX_VALUE - amount);
+    }
+
+    @Modifying
+    @Query("UPDATE AccountSlot s SET s.balanceMinor = s.balanceMinor + :amount WHERE s.accountId = :accountId AND s.slot = :slot"
+            + " AND s.balanceMinor <= :limit"
+            + " AND EXISTS (SELECT 1 FROM Account a WHERE a.id = :accountId AND a.locked = false)")
+    int addToSlot(long accountId, int slot, long amount, long limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+    List<AccountSlot> findAllByAccountIdWithPessimisticLock(long accountId);
+
+    @Query("SELECT COALESCE(SUM(s.balanceMinor), 0) FROM AccountSlot s WHERE s.accountId = :accountId")
+    long sumBalance(long accountId);
+
+    @Query("SELECT COUNT(s) FROM AccountSlot s WHERE s.accountId = :accountId")
+    int countByAccountId(long accountId);
+}
@@ -0,0 +1,14 @@
+package pl.kurs.bank.account.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.batch")
+public class AccountBatchProperties {
+    // commands applied and committed together, every group is one transaction
+    private int groupSize = 500;
+    private int maxCommands = 10_000;
+}
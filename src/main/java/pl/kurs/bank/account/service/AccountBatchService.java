@@ -0,0 +1,197 @@
+package pl.kurs.bank.account.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.admission.AccountAdmission;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
+import pl.kurs.bank.account.exception.AccountLockedException;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.common.dto.BatchResultDto;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountBatchService {
+
+    static final String OK = "OK";
+    static final String ACCOUNT_NOT_FOUND = "ACCOUNT_NOT_FOUND";
+    static final String ACCOUNT_LOCKED = "ACCOUNT_LOCKED";
+    static final String REJECTED = "REJECTED";
+    static final String FAILED = "FAILED";
+    static final String OVERLOADED = "OVERLOADED";
+
+    private final AccountRepository accountRepository;
+    private final AccountService accountService;
+    private final AccountUpdateStrategy updateStrategy;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AccountMetrics accountMetrics;
+    private final AccountBatchProperties properties;
+    private final ShardRouter shardRouter;
+    // present only with bank.account.admission.enabled=true
+    private final Optional<AccountAdmission> admission;
+    // present only with bank.account.deposit-mode=write-behind
+    private final Optional<WriteBehindDepositQueue> depositQueue;
+
+    public List<BatchResultDto> execute(BatchCashCommand command) {
+        List<BatchCashCommand.Entry> entries = command.getCommands();
+        if (entries.size() > properties.getMaxCommands()) {
+            throw new AccountOperationException("Batch exceeds " + properties.getMaxCommands() + " commands.");
+        }
+        BatchResultDto[] results = new BatchResultDto[entries.size()];
+        for (int from = 0; from < entries.size(); from += properties.getGroupSize()) {
+            int to = Math.min(from + properties.getGroupSize(), entries.size());
+            if (updateStrategy.isDatabaseBacked()) {
+                // entries of the group split by shard, each part in a transaction of its own
+                IntStream.range(from, to).boxed()
+                        .collect(Collectors.groupingBy(i -> shardRouter.shardOf(entries.get(i).getAccountId()),
+                                TreeMap::new, Collectors.toList()))
+                        .forEach((shard, indexes) -> admitted(entries, indexes, results, () -> {
+                            applyPendingDeposits(entries, indexes);
+                            shardRouter.onShard(shard, () -> {
+                                executeGroup(entries, indexes, results);
+                                return null;
+                            });
+                        }));
+            } else {
+                executeEach(entries, from, to, results);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // one transaction per group: rows are locked once in id order, so concurrent batches cannot deadlock,
+    // and the dirty accounts are flushed as a single JDBC batch on commit. Earlier groups are already committed,
+    // so a group that cannot begin or commit is reported FAILED on its own instead of failing the whole batch
+    private void executeGroup(List<BatchCashCommand.Entry> entries, List<Integer> indexes, BatchResultDto[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Account> accounts = lockAccounts(indexes.stream().map(entries::get).toList());
+                for (int i : indexes) {
+                    BatchCashCommand.Entry entry = entries.get(i);
+                    results[i] = new BatchResultDto(i, entry.getAccountId(), apply(entry, accounts.get(entry.getAccountId())));
+                }
+                accounts.keySet().forEach(id -> eventPublisher.publishEvent(new AccountChangedEvent(id)));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Batch group [{}, {}] failed and was rolled back", indexes.get(0), indexes.get(indexes.size() - 1), e);
+            for (int i : indexes) {
+                results[i] = new BatchResultDto(i, entries.get(i).getAccountId(), FAILED);
+            }
+        }
+    }
+
+    // with write-behind deposits the accounts the group withdraws from have their acknowledged deposits applied
+    // first, as single withdrawals do. The group's own deposits go straight to the locked rows instead of the queue:
+    // they must commit and roll back with the rest of the group, which a logged deposit cannot, and a flushed deposit
+    // is a relative increment of the row, so the two kinds add up in either order
+    private void applyPendingDeposits(List<BatchCashCommand.Entry> entries, List<Integer> indexes) {
+        depositQueue.ifPresent(queue -> indexes.stream()
+                .map(entries::get)
+                .filter(entry -> entry.getOperation() == BatchCashCommand.Operation.WITHDRAW)
+                .mapToLong(BatchCashCommand.Entry::getAccountId)
+                .distinct()
+                .forEach(queue::applyPending));
+    }
+
+    // a strategy that keeps accounts outside the database applies every command itself
+    private void executeEach(List<BatchCashCommand.Entry> entries, int from, int to, BatchResultDto[] results) {
+        for (int i = from; i < to; i++) {
+            int index = i;
+            admitted(entries, List.of(i), results, () -> executeOne(entries, index, results));
+        }
+    }
+
+    private void executeOne(List<BatchCashCommand.Entry> entries, int i, BatchResultDto[] results) {
+        BatchCashCommand.Entry entry = entries.get(i);
+        String[] status = {ACCOUNT_NOT_FOUND};
+        try {
+            updateStrategy.update(entry.getAccountId(), account -> {
+                status[0] = apply(entry, account);
+                if (OK.equals(status[0])) {
+                    eventPublisher.publishEvent(new AccountChangedEvent(account.getId()));
+                }
+            });
+        } catch (AccountNotFoundException e) {
+            status[0] = ACCOUNT_NOT_FOUND;
+        } catch (RuntimeException e) {
+            log.warn("Batch command {} failed", i, e);
+            status[0] = FAILED;
+        }
+        results[i] = new BatchResultDto(i, entry.getAccountId(), status[0]);
+    }
+
+    // a group is admitted on all its accounts at once, like a transfer on both of its own; a refused group is
+    // reported OVERLOADED entry by entry and the rest of the batch goes on
+    private void admitted(List<BatchCashCommand.Entry> entries, List<Integer> indexes, BatchResultDto[] results,
+                          Runnable group) {
+        if (admission.isEmpty()) {
+            group.run();
+            return;
+        }
+        long[] accountIds = indexes.stream().mapToLong(i -> entries.get(i).getAccountId()).distinct().sorted().toArray();
+        AccountAdmission.Permit permit;
+        try {
+            permit = admission.get().admit(accountIds);
+        } catch (AccountOverloadedException e) {
+            for (int i : indexes) {
+                results[i] = new BatchResultDto(i, entries.get(i).getAccountId(), OVERLOADED);
+            }
+            return;
+        }
+        try (permit) {
+            group.run();
+        }
+    }
+
+    private Map<Long, Account> lockAccounts(List<BatchCashCommand.Entry> group) {
+        TreeSet<Long> ids = group.stream()
+                .map(BatchCashCommand.Entry::getAccountId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        return accountMetrics.recordLockWait("batch", () -> accountRepository.findAllByIdWithPessimisticLock(ids)).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    private String apply(BatchCashCommand.Entry entry, Account account) {
+        if (account == null) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        if (entry.getOperation() == null) {
+            return REJECTED;
+        }
+        try {
+            switch (entry.getOperation()) {
+                case DEPOSIT -> accountService.applyDeposit(account, entry.getAmountMinor());
+                case WITHDRAW -> accountService.applyWithdraw(account, entry.getAmountMinor());
+            }
+            return OK;
+        } catch (AccountLockedException e) {
+            return ACCOUNT_LOCKED;
+        } catch (AccountNotFoundException e) {
+            return ACCOUNT_NOT_FOUND;
+        } catch (AccountOperationException e) {
+            return REJECTED;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package pl.kurs.bank.account.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.bulk")
+public class AccountBulkProperties {
+    // accounts inserted and committed together, every chunk is one transaction
+    private int chunkSize = 1000;
+}
@@ -0,0 +1,122 @@
+package pl.kurs.bank.account.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.exception.AccountRejectedException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.command.CreateAccountCommand;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.common.dto.BulkCreateProgressDto;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountCreationService {
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final AccountBulkProperties properties;
+    private final AccountMetrics accountMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+
+    public AccountView create(CreateAccountCommand command) {
+        Account account = accountMetrics.recordTransaction("create", () -> shardRouter.onShard(shardRouter.nextShard(),
+                () -> transactionTemplate.execute(status -> {
+                    Account saved = accountRepository.save(newAccount(command));
+                    publishCreated(saved);
+                    return saved;
+                })));
+        return AccountView.from(account, account.getBalanceMinor());
+    }
+
+    /**
+     * Creates one account per line of the NDJSON input. Lines are parsed as they arrive and inserted in chunks, each
+     * committed on its own, so only one chunk is ever held in memory. Chunks committed before a malformed or rejected
+     * line stay committed; the returned summary says how many accounts were created and why the import stopped.
+     * With sharding the chunks go to the shards in turn.
+     */
+    public BulkCreateProgressDto createAll(InputStream input, Consumer<BulkCreateProgressDto> progress) throws IOException {
+        long start = System.nanoTime();
+        long created = 0;
+        Long lastId = null;
+        List<Account> chunk = new ArrayList<>(properties.getChunkSize());
+        try (MappingIterator<CreateAccountCommand> commands = objectMapper.readerFor(CreateAccountCommand.class)
+                .readValues(input)) {
+            while (commands.hasNextValue()) {
+                chunk.add(newAccount(commands.nextValue()));
+                if (chunk.size() == properties.getChunkSize()) {
+                    lastId = persist(chunk);
+                    created += chunk.size();
+                    chunk.clear();
+                    progress.accept(new BulkCreateProgressDto(created, lastId, elapsedMillis(start), false, null));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                lastId = persist(chunk);
+                created += chunk.size();
+            }
+        } catch (JsonProcessingException | AccountRejectedException e) {
+            String error = "Line " + (created + chunk.size() + 1) + ": " + message(e);
+            log.warn("Bulk create stopped after {} accounts. {}", created, error);
+            return new BulkCreateProgressDto(created, lastId, elapsedMillis(start), false, error);
+        }
+        log.info("Bulk create finished, {} accounts in {} ms", created, elapsedMillis(start));
+        return new BulkCreateProgressDto(created, lastId, elapsedMillis(start), true, null);
+    }
+
+    private long persist(List<Account> chunk) {
+        List<Account> saved = accountMetrics.recordTransaction("bulk-create", () -> shardRouter.onShard(shardRouter.nextShard(),
+                () -> transactionTemplate.execute(status -> {
+                    List<Account> accounts = accountRepository.saveAll(chunk);
+                    accounts.forEach(this::publishCreated);
+                    return accounts;
+                })));
+        return saved.get(saved.size() - 1).getId();
+    }
+
+    private void publishCreated(Account account) {
+        eventPublisher.publishEvent(new AccountTotalsChangedEvent(account.getType(), account.isLocked(), 1,
+                account.getBalanceMinor()));
+    }
+
+    private static Account newAccount(CreateAccountCommand command) {
+        if (command.getType() == null) {
+            throw new AccountOperationException("Account type is required.");
+        }
+        if (command.getBalanceMinor() < 0) {
+            throw new AccountOperationException("Initial balance must not be negative.");
+        }
+        Account account = new Account();
+        account.setType(command.getType());
+        account.setBalanceMinor(command.getBalanceMinor());
+        return account;
+    }
+
+    private static String message(Exception e) {
+        return e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,140 @@
+package pl.kurs.bank.account.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.common.dto.AccountPageDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Listing of many accounts. Pages seek past the last id instead of using an offset, so every page costs the same
+ * however deep it is; the export walks one forward-only cursor and writes each row out as soon as it is read.
+ * Shards own consecutive id ranges, so both go through the shards in order and a page that runs out on one shard
+ * continues on the next. When the write strategy keeps accounts outside the database, the lock filter applies to
+ * the current state rather than to the stale row, and pages read on until they are full.
+ */
+@Service
+public class AccountQueryService {
+
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
+    private final AccountRepository accountRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public AccountQueryService(AccountRepository accountRepository, AccountUpdateStrategy updateStrategy,
+                               ObjectMapper objectMapper, ShardRouter shardRouter,
+                               PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.updateStrategy = updateStrategy;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public AccountPageDto list(long afterId, int limit, Account.Type type, Boolean locked) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new AccountOperationException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        Boolean rowLocked = rowFilter(locked);
+        List<AccountView> accounts = new ArrayList<>(limit);
+        long cursor = afterId;
+        for (int shard = shardRouter.shardOf(afterId + 1); shard < shardRouter.shardCount() && accounts.size() < limit; shard++) {
+            while (accounts.size() < limit) {
+                PageRequest remaining = PageRequest.ofSize(limit - accounts.size());
+                long after = cursor;
+                List<AccountView> rows = shardRouter.onShard(shard,
+                        () -> accountRepository.findViewsAfter(after, type, rowLocked, remaining));
+                for (AccountView row : rows) {
+                    current(row, locked).ifPresent(accounts::add);
+                    cursor = row.id();
+                }
+                if (rows.size() < remaining.getPageSize()) {
+                    break;
+                }
+            }
+        }
+        Long nextAfterId = accounts.size() == limit ? accounts.get(limit - 1).id() : null;
+        return new AccountPageDto(accounts, nextAfterId);
+    }
+
+    /**
+     * Writes every matching account as one JSON object per line. Projections are not managed entities, so the
+     * persistence context stays empty and memory use does not grow with the number of rows.
+     */
+    public void export(Account.Type type, Boolean locked, OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            ObjectWriter writer = objectMapper.writerFor(AccountView.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            long rows = 0;
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                long written = rows;
+                rows = shardRouter.onShard(shard, () -> readOnlyTransaction.execute(
+                        status -> exportShard(type, locked, generator, writer, written)));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // returns the number of rows written so far, flushing every EXPORT_FLUSH_ROWS of them
+    private long exportShard(Account.Type type, Boolean locked, JsonGenerator generator, ObjectWriter writer, long rows) {
+        try (Stream<AccountView> views = accountRepository.streamViews(type, rowFilter(locked))) {
+            Iterator<AccountView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                Optional<AccountView> view = current(iterator.next(), locked);
+                if (view.isEmpty()) {
+                    continue;
+                }
+                writer.writeValue(generator, view.get());
+                generator.writeRaw('\n');
+                if (++rows % EXPORT_FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // a stale row's locked column says nothing, the filter is applied to the current state instead
+    private Boolean rowFilter(Boolean locked) {
+        return updateStrategy.isDatabaseBacked() ? locked : null;
+    }
+
+    // rows are stale when the write strategy keeps accounts outside the database; the lookup loads nothing into
+    // the strategy, a listing would otherwise pull every row into it
+    private Optional<AccountView> current(AccountView row, Boolean locked) {
+        if (updateStrategy.isDatabaseBacked()) {
+            return Optional.of(row);
+        }
+        AccountView view = updateStrategy.findLoaded(row.id())
+                .map(account -> AccountView.from(account, account.getBalanceMinor()))
+                .orElse(row);
+        return locked == null || view.locked() == locked ? Optional.of(view) : Optional.empty();
+    }
+}
@@ -1,63 +1,254 @@
 package pl.kurs.bank.account.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.admission.AccountAdmission;
+import pl.kurs.bank.account.cache.AccountReadCache;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
+import pl.kurs.bank.account.exception.AccountLockedException;
 import pl.kurs.bank.account.exception.AccountNotFoundException;
 import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.lock.LockedAccountIndex;
 import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
 import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
 import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.model.event.AccountLockChangedEvent;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.readmodel.AccountReadModel;
+import pl.kurs.bank.account.shard.ShardRouter;
 import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.common.metrics.AccountMetrics;
 
-import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AccountService {
 
+    static final int MAX_STRIPES = 64;
+
     private final AccountRepository accountRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final StripedBalanceService stripedBalanceService;
+    private final AccountReadCache accountReadCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountMetrics accountMetrics;
+    private final LockedAccountIndex lockedAccountIndex;
+    private final ShardRouter shardRouter;
+    // present only with bank.account.deposit-mode=write-behind
+    private final Optional<WriteBehindDepositQueue> depositQueue;
+    // present only with bank.account.read-mode=model
+    private final Optional<AccountReadModel> accountReadModel;
+    // present only with bank.account.admission.enabled=true
+    private final Optional<AccountAdmission> admission;
 
-    @Transactional
     public void withdraw(WithdrawCashCommand command) {
-        Account account = accountRepository.findByIdWithPessimisticLock(command.getAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(command.getAccountId()));
-        if (command.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new AccountOperationException("Amount to withdraw must be positive.");
+        rejectLocked(command.getAccountId());
+        admitted(() -> {
+            applyPendingDeposits(command.getAccountId());
+            update("withdraw", command.getAccountId(), account -> applyWithdraw(account, command.getAmountMinor()));
+        }, command.getAccountId());
+    }
+
+    public void deposit(DepositCashCommand command) {
+        rejectLocked(command.getAccountId());
+        // deposits to a striped account spread over its slots and are only bounded by the global limit
+        if (stripedBalanceService.isStriped(command.getAccountId())) {
+            admitted(() -> applyDepositCommand(command));
+        } else {
+            admitted(() -> applyDepositCommand(command), command.getAccountId());
         }
-        if (account.getBalance().compareTo(command.getAmount()) < 0) {
-            throw new AccountOperationException("Insufficient funds for withdrawal.");
+    }
+
+    private void applyDepositCommand(DepositCashCommand command) {
+        if (depositQueue.isPresent()) {
+            checkDepositAmount(command.getAmountMinor());
+            accountMetrics.recordTransaction("write-behind-deposit", () -> {
+                acceptDeposit(depositQueue.get(), command.getAccountId(), command.getAmountMinor());
+                return null;
+            });
+            return;
+        }
+        if (stripedBalanceService.isStriped(command.getAccountId())) {
+            checkDepositAmount(command.getAmountMinor());
+            if (accountMetrics.recordTransaction("striped-deposit", () -> shardRouter.onShardOf(command.getAccountId(),
+                    () -> stripedBalanceService.depositToSlot(command.getAccountId(), command.getAmountMinor())))) {
+                return;
+            }
         }
-        account.withdraw(command.getAmount());
+        update("deposit", command.getAccountId(), account -> applyDeposit(account, command.getAmountMinor()));
     }
 
-    @Transactional
-    public void deposit(DepositCashCommand command) {
-        Account account = accountRepository.findByIdWithPessimisticLock(command.getAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(command.getAccountId()));
-        if (command.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new AccountOperationException("Amount to deposit must be positive.");
+    /**
+     * Moves money between two accounts in one transaction. Both rows are locked in ascending id order, the same
+     * order every multi-account lock in this service uses, so overlapping transfers cannot deadlock. Both accounts
+     * must be on the same shard.
+     */
+    public void transfer(TransferCashCommand command) {
+        long fromId = command.getFromAccountId();
+        long toId = command.getToAccountId();
+        if (command.getAmountMinor() <= 0) {
+            throw new AccountOperationException("Amount to transfer must be positive.");
+        }
+        if (fromId == toId) {
+            throw new AccountOperationException("Unable to transfer to the same account.");
+        }
+        if (!updateStrategy.isDatabaseBacked()) {
+            throw new AccountOperationException("Transfers are not available in this write mode.");
+        }
+        if (shardRouter.shardOf(fromId) != shardRouter.shardOf(toId)) {
+            throw new AccountOperationException("Transfers between accounts on different shards are not supported.");
         }
-        account.deposit(command.getAmount());
+        rejectLocked(fromId);
+        rejectLocked(toId);
+        admitted(() -> {
+            applyPendingDeposits(fromId);
+            accountMetrics.recordTransaction("transfer", () -> shardRouter.onShardOf(fromId,
+                    () -> transactionTemplate.execute(status -> {
+                        moveMoney(fromId, toId, command.getAmountMinor());
+                        return null;
+                    })));
+        }, fromId, toId);
+    }
+
+    private void moveMoney(long fromId, long toId, long amount) {
+        Map<Long, Account> accounts = accountMetrics.recordLockWait("transfer",
+                        () -> accountRepository.findAllByIdWithPessimisticLock(new TreeSet<>(List.of(fromId, toId))))
+                .stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+        Account from = Optional.ofNullable(accounts.get(fromId)).orElseThrow(() -> new AccountNotFoundException(fromId));
+        Account to = Optional.ofNullable(accounts.get(toId)).orElseThrow(() -> new AccountNotFoundException(toId));
+        applyWithdraw(from, amount);
+        applyDeposit(to, amount);
+        eventPublisher.publishEvent(new AccountChangedEvent(fromId));
+        eventPublisher.publishEvent(new AccountChangedEvent(toId));
+    }
+
+    public void stripe(long id, int stripes) {
+        if (stripes < 1 || stripes > MAX_STRIPES) {
+            throw new AccountOperationException("Stripes must be between 1 and " + MAX_STRIPES + ".");
+        }
+        if (!updateStrategy.isDatabaseBacked()) {
+            throw new AccountOperationException("Striping is not available in this write mode.");
+        }
+        admitted(() -> update("stripe", id, account -> stripedBalanceService.stripe(account, stripes)), id);
     }
 
-    @Transactional
     public void lock(long id) {
-        Account account = accountRepository.findById(id)
-                .orElseThrow(() -> new AccountNotFoundException(id));
-        account.lock();
+        admitted(() -> update("lock", id, account -> changeLock(account, Account::lock)), id);
     }
 
-    @Transactional
     public void unlock(long id) {
-        Account account = accountRepository.findById(id)
-                .orElseThrow(() -> new AccountNotFoundException(id));
-        account.unlock();
+        admitted(() -> update("unlock", id, account -> changeLock(account, Account::unlock)), id);
+    }
+
+    // the read model, when enabled, shows write-behind deposits once they are flushed
+    public AccountView getAccount(long id) {
+        if (accountReadModel.isPresent()) {
+            return accountReadModel.get().get(id, () -> loadAccount(id));
+        }
+        if (depositQueue.isPresent()) {
+            return depositQueue.get().find(id);
+        }
+        return accountReadCache.get(id, () -> updateStrategy.find(id)
+                .map(account -> AccountView.from(account, account.getBalanceMinor()))
+                .orElseGet(() -> loadAccount(id)));
+    }
+
+    void applyWithdraw(Account account, long amount) {
+        if (amount <= 0) {
+            throw new AccountOperationException("Amount to withdraw must be positive.");
+        }
+        if (account.getStripes() > 0) {
+            stripedBalanceService.withdraw(account, amount);
+        } else if (account.getBalanceMinor() < amount) {
+            throw new AccountOperationException("Insufficient funds for withdrawal.");
+        } else {
+            account.withdraw(amount);
+        }
+        publishTotals(account.getType(), account.isLocked(), 0, -amount);
+    }
+
+    void applyDeposit(Account account, long amount) {
+        checkDepositAmount(amount);
+        account.deposit(amount);
+        publishTotals(account.getType(), account.isLocked(), 0, amount);
+    }
+
+    // the account moves with its whole balance between the locked and unlocked totals
+    private void changeLock(Account account, Consumer<Account> change) {
+        long balance = stripedBalanceService.totalBalance(account);
+        change.accept(account);
+        eventPublisher.publishEvent(new AccountLockChangedEvent(account.getId(), account.isLocked()));
+        publishTotals(account.getType(), !account.isLocked(), -1, -balance);
+        publishTotals(account.getType(), account.isLocked(), 1, balance);
+    }
+
+    private void publishTotals(Account.Type type, boolean locked, long accounts, long balance) {
+        eventPublisher.publishEvent(new AccountTotalsChangedEvent(type, locked, accounts, balance));
+    }
+
+    // the event is published inside the strategy's transaction, so its listeners see that transaction's outcome
+    private void update(String name, long id, Consumer<Account> operation) {
+        accountMetrics.recordTransaction(name, () -> shardRouter.onShardOf(id, () -> {
+            updateStrategy.update(id, operation.andThen(account -> eventPublisher.publishEvent(new AccountChangedEvent(id))));
+            return null;
+        }));
+    }
+
+    // the deposit is accepted against the cached account; a lock placed after the check is ordered after the deposit
+    private void acceptDeposit(WriteBehindDepositQueue queue, long id, long amount) {
+        AccountView account = accountReadCache.get(id, () -> loadAccount(id));
+        if (account.locked()) {
+            throw new AccountLockedException(id);
+        }
+        queue.accept(id, amount);
+        publishTotals(account.type(), false, 0, amount);
+    }
+
+    // with write-behind deposits the balance a withdrawal checks includes every deposit acknowledged before it
+    private void applyPendingDeposits(long id) {
+        depositQueue.ifPresent(queue -> queue.applyPending(id));
+    }
+
+    // refused at once, before any lock or connection is taken, when the accounts or the service are over their limits
+    private void admitted(Runnable operation, long... accountIds) {
+        if (admission.isEmpty()) {
+            operation.run();
+            return;
+        }
+        try (AccountAdmission.Permit permit = admission.get().admit(accountIds)) {
+            operation.run();
+        }
     }
 
-    @Transactional(readOnly = true)
-    public Account getAccount(long id) {
-        return accountRepository.findById(id)
+    // refuses a locked account without a transaction; accounts missing from the index are checked by the update
+    private void rejectLocked(long id) {
+        if (lockedAccountIndex.isLocked(id)) {
+            throw new AccountLockedException(id);
+        }
+    }
+
+    private AccountView loadAccount(long id) {
+        return shardRouter.onShardOf(id, () -> accountRepository.findViewById(id))
                 .orElseThrow(() -> new AccountNotFoundException(id));
     }
+
+    private static void checkDepositAmount(long amount) {
+        if (amount <= 0) {
+            throw new AccountOperationException("Amount to deposit must be positive.");
+        }
+    }
 }
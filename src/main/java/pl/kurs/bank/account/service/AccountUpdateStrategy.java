@@ -0,0 +1,35 @@
+package pl.kurs.bank.account.service;
+
+import pl.kurs.bank.account.model.Account;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Decides how {@link AccountService} gets exclusive access to an account while a write operation is applied.
+ * The operation must validate everything before it mutates the account, so a rejected operation leaves no trace.
+ */
+public interface AccountUpdateStrategy {
+
+    void update(long accountId, Consumer<Account> operation);
+
+    /**
+     * Current state of an account the strategy keeps outside the database; empty means the database row is current.
+     */
+    default Optional<Account> find(long accountId) {
+        return Optional.empty();
+    }
+
+    /**
+     * Like {@link #find(long)}, but without loading an account the strategy does not hold yet, for code walking
+     * many rows; empty means the database row is current.
+     */
+    default Optional<Account> findLoaded(long accountId) {
+        return Optional.empty();
+    }
+
+    // false when the account rows are not updated, so code working on rows directly must go through update()
+    default boolean isDatabaseBacked() {
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package pl.kurs.bank.account.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.optimistic")
+public class OptimisticRetryProperties {
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofMillis(2);
+    private Duration maxBackoff = Duration.ofMillis(50);
+}
@@ -0,0 +1,80 @@
+package pl.kurs.bank.account.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountConcurrentUpdateException;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reads the account without a row lock and relies on the versioned update Hibernate issues on commit
+ * ({@code UPDATE ... WHERE id = ? AND version = ?}). A lost race rolls the attempt back and retries it
+ * in a fresh transaction after a jittered exponential backoff.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account.write-mode", havingValue = "optimistic")
+@Slf4j
+public class OptimisticRetryStrategy implements AccountUpdateStrategy {
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetryProperties properties;
+    private final Counter attempts;
+    private final Counter conflicts;
+    private final Counter exhausted;
+
+    public OptimisticRetryStrategy(AccountRepository accountRepository, TransactionTemplate transactionTemplate,
+                                   OptimisticRetryProperties properties, MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.attempts = meterRegistry.counter("bank.account.optimistic.attempts");
+        this.conflicts = meterRegistry.counter("bank.account.optimistic.conflicts");
+        this.exhausted = meterRegistry.counter("bank.account.optimistic.exhausted");
+    }
+
+    @Override
+    public void update(long accountId, Consumer<Account> operation) {
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Account account = accountRepository.findById(accountId)
+                            .orElseThrow(() -> new AccountNotFoundException(accountId));
+                    operation.accept(account);
+                });
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (attempt >= properties.getMaxAttempts()) {
+                    exhausted.increment();
+                    log.debug("Giving up on account {} after {} conflicting attempts", accountId, attempt);
+                    throw new AccountConcurrentUpdateException(accountId);
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(properties.getMaxBackoff().toNanos(),
+                properties.getInitialBackoff().toNanos() << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package pl.kurs.bank.account.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "bank.account.write-mode", havingValue = "pessimistic", matchIfMissing = true)
+@RequiredArgsConstructor
+public class PessimisticLockingStrategy implements AccountUpdateStrategy {
+
+    private final AccountRepository accountRepository;
+    private final AccountMetrics accountMetrics;
+
+    @Override
+    @Transactional
+    public void update(long accountId, Consumer<Account> operation) {
+        Account account = accountMetrics.recordLockWait("account", () -> accountRepository.findByIdWithPessimisticLock(accountId))
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        operation.accept(account);
+    }
+}
@@ -0,0 +1,112 @@
+package pl.kurs.bank.account.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.kurs.bank.account.exception.AccountLockedException;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountSlot;
+import pl.kurs.bank.account.model.MinorUnits;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.repository.AccountSlotRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Balance of a striped account is its own balance plus the balances of its slots. Deposits increment a random
+ * slot without locking the account row, only while the row is unlocked; withdrawals lock the account and all of
+ * its slots and drain them in order.
+ */
+@Service
+@RequiredArgsConstructor
+public class StripedBalanceService {
+
+    private final AccountRepository accountRepository;
+    private final AccountSlotRepository accountSlotRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardRouter shardRouter;
+    // routing hint only: a stale entry falls back to the regular path, which is still correct for striped accounts
+    private final Set<Long> stripedAccountIds = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStripedAccounts() {
+        shardRouter.onEachShard(accountRepository::findStripedAccountIds).forEach(stripedAccountIds::addAll);
+    }
+
+    public boolean isStriped(long accountId) {
+        return stripedAccountIds.contains(accountId);
+    }
+
+    // runs on the account's shard, the caller picks it
+    @Transactional
+    public boolean depositToSlot(long accountId, long amount) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+        if (account.getStripes() == 0) {
+            stripedAccountIds.remove(accountId);
+            return false;
+        }
+        // the row read above is not locked, a lock committed since then is caught by the update itself
+        if (accountSlotRepository.addToSlot(accountId, account.slotForDeposit(), amount) == 0) {
+            throw slotRefusal(accountId);
+        }
+        eventPublisher.publishEvent(new AccountChangedEvent(accountId));
+        eventPublisher.publishEvent(new AccountTotalsChangedEvent(account.getType(), false, 0, amount));
+        return true;
+    }
+
+    // the slot update refuses both a locked account and an overflowing slot, the committed row tells which
+    private RuntimeException slotRefusal(long accountId) {
+        boolean locked = accountRepository.findLockedById(accountId).orElse(true);
+        return locked ? new AccountLockedException(accountId) : new AccountOperationException("Balance overflow.");
+    }
+
+    void stripe(Account account, int stripes) {
+        int existing = account.getStripes();
+        account.stripe(stripes);
+        List<AccountSlot> slots = IntStream.range(existing, stripes)
+                .mapToObj(slot -> new AccountSlot(account.getId(), slot))
+                .toList();
+        accountSlotRepository.saveAll(slots);
+        stripedAccountIds.add(account.getId());
+    }
+
+    void withdraw(Account account, long amount) {
+        List<AccountSlot> slots = accountSlotRepository.findAllByAccountIdWithPessimisticLock(account.getId());
+        long total = account.getBalanceMinor();
+        for (AccountSlot slot : slots) {
+            total = MinorUnits.add(total, slot.getBalanceMinor());
+        }
+        if (total < amount) {
+            throw new AccountOperationException("Insufficient funds for withdrawal.");
+        }
+        long remaining = amount - Math.min(account.getBalanceMinor(), amount);
+        account.withdraw(amount - remaining);
+        for (AccountSlot slot : slots) {
+            if (remaining == 0) {
+                break;
+            }
+            long drained = Math.min(slot.getBalanceMinor(), remaining);
+            slot.withdraw(drained);
+            remaining -= drained;
+        }
+    }
+
+    public long totalBalance(Account account) {
+        if (account.getStripes() == 0) {
+            return account.getBalanceMinor();
+        }
+        return MinorUnits.add(account.getBalanceMinor(), accountSlotRepository.sumBalance(account.getId()));
+    }
+}
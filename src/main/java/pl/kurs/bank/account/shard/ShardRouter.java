@@ -0,0 +1,90 @@
+package pl.kurs.bank.account.shard;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard an account lives on and runs work against it. Shards own consecutive id ranges, each
+ * handing out ids from its own sequence, so the shard follows from the id alone and listing the shards one after
+ * another lists accounts in id order. New accounts go to the shards in turn.
+ * <p>
+ * The shard must be chosen before a transaction starts; a transaction stays on the connection it began with. Work
+ * run without a shard uses the first one. With sharding disabled there is a single shard and no routing at all.
+ */
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shards;
+    private final long rangeSize;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardRouter(ShardingProperties properties) {
+        this.shards = properties.isEnabled() ? properties.getShards().size() : 1;
+        this.rangeSize = properties.getRangeSize();
+    }
+
+    static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    public boolean isSharded() {
+        return shards > 1;
+    }
+
+    public int shardCount() {
+        return shards;
+    }
+
+    public int shardOf(long accountId) {
+        if (shards == 1 || accountId <= 0) {
+            return 0;
+        }
+        return (int) Math.min(shards - 1, (accountId - 1) / rangeSize);
+    }
+
+    // where the next new account goes
+    public int nextShard() {
+        return shards == 1 ? 0 : Math.floorMod(nextShard.getAndIncrement(), shards);
+    }
+
+    public <T> T onShardOf(long accountId, Supplier<T> work) {
+        return onShard(shardOf(accountId), work);
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shards == 1) {
+            return work.get();
+        }
+        Integer previous = CURRENT.get();
+        int effective = previous == null ? 0 : previous;
+        if (effective != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A transaction on shard " + effective + " cannot use shard " + shard + ".");
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    // the results in shard order, which is also id order
+    public <T> List<T> onEachShard(Supplier<T> work) {
+        List<T> results = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            results.add(onShard(shard, work));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,23 @@
+package pl.kurs.bank.account.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+// hands out connections from the pool of the shard chosen by the ShardRouter, the first shard when none is
+class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : getResolvedDataSources().values()) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
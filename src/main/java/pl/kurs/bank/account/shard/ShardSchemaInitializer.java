@@ -0,0 +1,97 @@
+package pl.kurs.bank.account.shard;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares every shard after the first. When Hibernate recreates the schema on startup it only does so on the
+ * first shard, so the others are emptied and given a copy of it, taken with H2's {@code SCRIPT NODATA}; when
+ * Liquibase migrated the first shard, the same changelog is applied to the others. Then the account sequence of
+ * each shard is moved to the start of its id range, unless it is already past it.
+ */
+@Slf4j
+class ShardSchemaInitializer implements InitializingBean {
+
+    private static final String ACCOUNT_SEQUENCE = "ACCOUNT_SEQ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final long rangeSize;
+    private final boolean copySchema;
+    // null unless the schema comes from Liquibase
+    private final String changeLog;
+    private final ResourceLoader resourceLoader;
+
+    ShardSchemaInitializer(DataSource dataSource, ShardRouter shardRouter, long rangeSize, boolean copySchema,
+                           String changeLog, ResourceLoader resourceLoader) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.rangeSize = rangeSize;
+        this.copySchema = copySchema;
+        this.changeLog = changeLog;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> schema = copySchema ? shardRouter.onShard(0, this::schemaScript) : List.of();
+        for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+            long firstId = shard * rangeSize + 1;
+            shardRouter.onShard(shard, () -> {
+                if (copySchema) {
+                    jdbcTemplate.execute("DROP ALL OBJECTS");
+                    schema.forEach(jdbcTemplate::execute);
+                }
+                if (changeLog != null) {
+                    migrate();
+                }
+                alignSequence(firstId);
+                return null;
+            });
+        }
+    }
+
+    // the statements creating tables, sequences and constraints; users and comments are left out
+    private List<String> schemaScript() {
+        return jdbcTemplate.queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                .toList();
+    }
+
+    // runs on the shard selected by the caller, the routing data source hands Liquibase a connection to it
+    private void migrate() {
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(jdbcTemplate.getDataSource());
+        liquibase.setChangeLog(changeLog);
+        liquibase.setResourceLoader(resourceLoader);
+        try {
+            liquibase.afterPropertiesSet();
+        } catch (LiquibaseException e) {
+            throw new IllegalStateException("Unable to migrate shard " + ShardRouter.currentShard() + ".", e);
+        }
+    }
+
+    // with a pooled sequence the first value fetched is the top of the first block of ids
+    private void alignSequence(long firstId) {
+        List<Map<String, Object>> sequences = jdbcTemplate.queryForList(
+                "SELECT BASE_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?", ACCOUNT_SEQUENCE);
+        if (sequences.isEmpty()) {
+            return;
+        }
+        long next = ((Number) sequences.get(0).get("BASE_VALUE")).longValue();
+        long increment = ((Number) sequences.get(0).get("INCREMENT")).longValue();
+        if (next < firstId) {
+            long restart = firstId + increment - 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + ACCOUNT_SEQUENCE + " RESTART WITH " + restart);
+            log.info("Account ids of shard {} start at {}", shardRouter.shardOf(firstId), firstId);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package pl.kurs.bank.account.shard;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sequence generator whose pooled blocks of ids are kept per shard. The sequence is read on the current shard's
+ * connection, but a single optimizer would hand ids fetched from one shard out to inserts on another; every shard
+ * after the first gets an optimizer of its own. Without sharding it is a plain {@link SequenceStyleGenerator}.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+
+    private final Map<Integer, Optimizer> shardOptimizers = new ConcurrentHashMap<>();
+    private String optimizerName;
+    private long initialValue;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        super.configure(type, params, serviceRegistry);
+        optimizerName = OptimizerFactory.determineImplicitOptimizerName(getOptimizer().getIncrementSize(), params);
+        initialValue = ConfigurationHelper.getLong(INITIAL_PARAM, params, DEFAULT_INITIAL_VALUE);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        Integer shard = ShardRouter.currentShard();
+        if (shard == null || shard == 0) {
+            return super.generate(session, object);
+        }
+        return shardOptimizers.computeIfAbsent(shard, ignored -> OptimizerFactory.buildOptimizer(optimizerName,
+                        getIdentifierType().getReturnedClass(), getOptimizer().getIncrementSize(), initialValue))
+                .generate(getDatabaseStructure().buildCallback(session));
+    }
+}
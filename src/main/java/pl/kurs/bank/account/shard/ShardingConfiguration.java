@@ -0,0 +1,81 @@
+package pl.kurs.bank.account.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opt-in sharding (bank.sharding.enabled=true): one connection pool per configured shard behind a single routing
+ * {@link DataSource}, which replaces spring.datasource. JPA and its transaction manager stay single; every
+ * transaction runs on the pool of the shard chosen by the {@link ShardRouter} before it began, so no transaction
+ * spans shards. Write modes that commit several accounts together outside the caller's thread, and write-behind
+ * deposits with their single checkpoint, are refused.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.sharding.enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfiguration {
+
+    private static final Set<String> SHARDED_WRITE_MODES = Set.of("pessimistic", "optimistic");
+
+    @Bean
+    public DataSource dataSource(ShardingProperties properties, Environment environment) {
+        String writeMode = environment.getProperty("bank.account.write-mode", "pessimistic");
+        if (!SHARDED_WRITE_MODES.contains(writeMode)) {
+            throw new IllegalStateException("Sharding needs the pessimistic or optimistic write mode, not " + writeMode + ".");
+        }
+        if ("write-behind".equals(environment.getProperty("bank.account.deposit-mode"))) {
+            throw new IllegalStateException("Write-behind deposits are not available with sharding.");
+        }
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("Sharding needs at least one entry in bank.sharding.shards.");
+        }
+        Map<Object, Object> pools = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardingProperties.Shard shard = shards.get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("shard-" + i);
+            pool.setJdbcUrl(shard.getUrl());
+            pool.setUsername(shard.getUsername());
+            pool.setPassword(shard.getPassword());
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            pools.put(i, pool);
+        }
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(pools);
+        dataSource.setDefaultTargetDataSource(pools.get(0));
+        log.info("Routing accounts over {} shards of {} ids each", shards.size(), properties.getRangeSize());
+        return dataSource;
+    }
+
+    // takes the EntityManagerFactory so that it runs once Hibernate or Liquibase has created the schema on the first
+    // shard; nothing depends on it, so it is kept eager under lazy initialization
+    @Bean
+    @Lazy(false)
+    public ShardSchemaInitializer shardSchemaInitializer(DataSource dataSource, EntityManagerFactory entityManagerFactory,
+                                                         ShardRouter shardRouter, ShardingProperties properties,
+                                                         @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto,
+                                                         ObjectProvider<LiquibaseProperties> liquibaseProperties,
+                                                         ResourceLoader resourceLoader) {
+        LiquibaseProperties liquibase = liquibaseProperties.getIfAvailable();
+        return new ShardSchemaInitializer(dataSource, shardRouter, properties.getRangeSize(),
+                ddlAuto.equals("create") || ddlAuto.equals("create-drop"),
+                liquibase != null && liquibase.isEnabled() ? liquibase.getChangeLog() : null, resourceLoader);
+    }
+}
@@ -0,0 +1,27 @@
+package pl.kurs.bank.account.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.sharding")
+public class ShardingProperties {
+    private boolean enabled = false;
+    // shard i holds the account ids i * rangeSize + 1 .. (i + 1) * rangeSize
+    private long rangeSize = 1_000_000_000_000L;
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+        private String username = "sa";
+        private String password = "";
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,191 @@
+package pl.kurs.bank.account.stats;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountTotals;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.common.dto.AccountStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Account count and total balance per type and lock state, kept up to date from the changes every committed
+ * operation publishes, so reading them never touches the database. Counters are {@link LongAdder}s and
+ * concurrent writers do not contend on them. A background task compares them with the database and corrects
+ * any drift; a cell that changed while the database was being read is left for the next round.
+ */
+@Component
+@Slf4j
+public class AccountStatistics {
+
+    private final AccountRepository accountRepository;
+    private final AccountUpdateStrategy updateStrategy;
+    private final Optional<WriteBehindDepositQueue> depositQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountStatsProperties properties;
+    private final ShardRouter shardRouter;
+    // one cell per type and lock state, see index()
+    private final Cell[] cells = new Cell[Account.Type.values().length * 2];
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile LocalDateTime reconciledAt;
+
+    public AccountStatistics(AccountRepository accountRepository, AccountUpdateStrategy updateStrategy,
+                             Optional<WriteBehindDepositQueue> depositQueue, TransactionTemplate transactionTemplate,
+                             AccountStatsProperties properties, ShardRouter shardRouter) {
+        this.accountRepository = accountRepository;
+        this.updateStrategy = updateStrategy;
+        this.depositQueue = depositQueue;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new Cell();
+        }
+    }
+
+    // the first round loads the totals, until then they only hold the changes made since startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = properties.getReconcileInterval().toMillis();
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        reconciler.shutdownNow();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTotalsChanged(AccountTotalsChangedEvent event) {
+        if (event.type() == null) {
+            return;
+        }
+        Cell cell = cells[index(event.type(), event.locked())];
+        cell.accounts.add(event.accounts());
+        cell.balance.add(event.balance());
+        cell.changes.increment();
+    }
+
+    public AccountStatsDto getStats() {
+        List<AccountTotals> totals = new ArrayList<>(cells.length);
+        for (Account.Type type : Account.Type.values()) {
+            for (boolean locked : new boolean[]{false, true}) {
+                Cell cell = cells[index(type, locked)];
+                totals.add(new AccountTotals(type, locked, cell.accounts.sum(), cell.balance.sum()));
+            }
+        }
+        return new AccountStatsDto(totals, reconciledAt);
+    }
+
+    /**
+     * Replaces the value of every cell that did not change while the database was read with what the database
+     * holds. Deposits accepted by the write-behind queue are not in the rows yet, so nothing is corrected while
+     * any are pending.
+     */
+    void reconcile() {
+        if (hasPendingDeposits()) {
+            log.debug("Skipping account statistics reconciliation, write-behind deposits are pending");
+            return;
+        }
+        long[] changes = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            changes[i] = cells[i].changes.sum();
+        }
+        long[] accounts = new long[cells.length];
+        long[] balances = new long[cells.length];
+        for (AccountTotals totals : readTotals()) {
+            accounts[index(totals.type(), totals.locked())] += totals.accounts();
+            balances[index(totals.type(), totals.locked())] += totals.balance();
+        }
+        if (hasPendingDeposits()) {
+            return;
+        }
+        int skipped = 0;
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = cells[i];
+            long accountsDrift = accounts[i] - cell.accounts.sum();
+            long balanceDrift = balances[i] - cell.balance.sum();
+            if (cell.changes.sum() != changes[i]) {
+                skipped++;
+                continue;
+            }
+            if (accountsDrift != 0 || balanceDrift != 0) {
+                log.warn("Account statistics cell {} drifted by {} accounts and {} minor units, corrected",
+                        i, accountsDrift, balanceDrift);
+                cell.accounts.add(accountsDrift);
+                cell.balance.add(balanceDrift);
+            }
+        }
+        if (skipped == 0) {
+            reconciledAt = LocalDateTime.now();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("Account statistics reconciliation failed", e);
+        }
+    }
+
+    // balances of a strategy that keeps them in memory are read from it without loading the accounts it does not
+    // hold yet, the rows supply the rest
+    private List<AccountTotals> readTotals() {
+        if (updateStrategy.isDatabaseBacked()) {
+            return shardRouter.onEachShard(accountRepository::sumByTypeAndLocked).stream()
+                    .flatMap(List::stream)
+                    .toList();
+        }
+        return transactionTemplate.execute(status -> {
+            List<AccountTotals> totals = new ArrayList<>();
+            try (Stream<AccountView> views = accountRepository.streamViews(null, null)) {
+                views.map(view -> updateStrategy.findLoaded(view.id())
+                                .map(account -> AccountView.from(account, account.getBalanceMinor()))
+                                .orElse(view))
+                        .filter(view -> view.type() != null)
+                        .forEach(view -> totals.add(new AccountTotals(view.type(), view.locked(), 1, view.balance())));
+            }
+            return totals;
+        });
+    }
+
+    private boolean hasPendingDeposits() {
+        return depositQueue.map(queue -> queue.pendingAccounts() > 0).orElse(false);
+    }
+
+    private static int index(Account.Type type, boolean locked) {
+        return type.ordinal() * 2 + (locked ? 1 : 0);
+    }
+
+    private static final class Cell {
+        private final LongAdder accounts = new LongAdder();
+        private final LongAdder balance = new LongAdder();
+        // incremented after every change, a reconciliation only trusts a cell whose count it did not see move
+        private final LongAdder changes = new LongAdder();
+    }
+}
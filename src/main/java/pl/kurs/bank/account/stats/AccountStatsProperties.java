@@ -0,0 +1,14 @@
+package pl.kurs.bank.account.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.account.stats")
+public class AccountStatsProperties {
+    private Duration reconcileInterval = Duration.ofMinutes(5);
+}
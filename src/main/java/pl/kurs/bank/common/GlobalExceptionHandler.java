@@ -1,30 +1,90 @@
 package pl.kurs.bank.common;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import pl.kurs.bank.account.exception.AccountConcurrentUpdateException;
 import pl.kurs.bank.account.exception.AccountLockedException;
 import pl.kurs.bank.account.exception.AccountNotFoundException;
 import pl.kurs.bank.account.exception.AccountNotLockedException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
 import pl.kurs.bank.common.dto.AccountLockedDto;
 import pl.kurs.bank.common.dto.NotFoundDto;
+import pl.kurs.bank.common.dto.OperationRejectedDto;
+import pl.kurs.bank.common.dto.OverloadedDto;
+import pl.kurs.bank.common.execution.DatabaseBusyException;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
+
+    // operation rejections use a small fixed set of messages, so their responses are built once and reused
+    private static final int MAX_CACHED_REJECTIONS = 256;
+
+    private final AccountMetrics accountMetrics;
+    private final Map<String, ResponseEntity<OperationRejectedDto>> operationRejections = new ConcurrentHashMap<>();
+
     @ExceptionHandler(AccountNotFoundException.class)
     public ResponseEntity<NotFoundDto> handleAccountNotFoundException(AccountNotFoundException exc) {
+        accountMetrics.recordRejection(exc);
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new NotFoundDto("ACCOUNT", exc.getAccountId()));
     }
 
     @ExceptionHandler(AccountLockedException.class)
     public ResponseEntity<AccountLockedDto> handleAccountLockedException(AccountLockedException exc) {
+        accountMetrics.recordRejection(exc);
         return ResponseEntity.status(HttpStatus.CONFLICT).body(new AccountLockedDto(exc.getAccountId(), "ACCOUNT_LOCKED"));
     }
 
     @ExceptionHandler(AccountNotLockedException.class)
     public ResponseEntity<AccountLockedDto> handleAccountNotLockedException(AccountNotLockedException exc) {
+        accountMetrics.recordRejection(exc);
         return ResponseEntity.status(HttpStatus.CONFLICT).body(new AccountLockedDto(exc.getAccountId(), "ACCOUNT_NOT_LOCKED"));
     }
 
+    @ExceptionHandler(AccountConcurrentUpdateException.class)
+    public ResponseEntity<AccountLockedDto> handleAccountConcurrentUpdateException(AccountConcurrentUpdateException exc) {
+        accountMetrics.recordRejection(exc);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new AccountLockedDto(exc.getAccountId(), "ACCOUNT_CONCURRENT_UPDATE"));
+    }
+
+    @ExceptionHandler(AccountOverloadedException.class)
+    public ResponseEntity<OverloadedDto> handleAccountOverloadedException(AccountOverloadedException exc) {
+        accountMetrics.recordRejection(exc);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exc.getRetryAfter().toSeconds())))
+                .body(new OverloadedDto(exc.getAccountId(),
+                        exc.getAccountId() == null ? "SERVICE_OVERLOADED" : "ACCOUNT_OVERLOADED"));
+    }
+
+    // also when wrapped, a transaction that could not get its connection fails with the exception as the cause
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<Void> handleDatabaseBusyException(DatabaseBusyException exc) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, exc.getRetryAfter().toSeconds())))
+                .build();
+    }
+
+    @ExceptionHandler(AccountOperationException.class)
+    public ResponseEntity<OperationRejectedDto> handleAccountOperationException(AccountOperationException exc) {
+        accountMetrics.recordRejection(exc);
+        ResponseEntity<OperationRejectedDto> response = operationRejections.get(exc.getMessage());
+        if (response != null) {
+            return response;
+        }
+        response = ResponseEntity.unprocessableEntity().body(new OperationRejectedDto(exc.getMessage()));
+        if (operationRejections.size() < MAX_CACHED_REJECTIONS) {
+            operationRejections.putIfAbsent(exc.getMessage(), response);
+        }
+        return response;
+    }
+
 }
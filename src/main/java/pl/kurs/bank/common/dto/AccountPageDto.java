@@ -0,0 +1,9 @@
+package pl.kurs.bank.common.dto;
+
+import pl.kurs.bank.account.model.AccountView;
+
+import java.util.List;
+
+// nextAfterId is the afterId of the following page, null on the last one
+public record AccountPageDto(List<AccountView> accounts, Long nextAfterId) {
+}
@@ -0,0 +1,10 @@
+package pl.kurs.bank.common.dto;
+
+import pl.kurs.bank.account.model.AccountTotals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// reconciledAt is null until the totals have been checked against the database once
+public record AccountStatsDto(List<AccountTotals> totals, LocalDateTime reconciledAt) {
+}
@@ -0,0 +1,4 @@
+package pl.kurs.bank.common.dto;
+
+public record BatchResultDto(int index, long accountId, String status) {
+}
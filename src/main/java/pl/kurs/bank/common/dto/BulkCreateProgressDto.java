@@ -0,0 +1,8 @@
+package pl.kurs.bank.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// one line of the bulk create response: after every committed chunk, then a final one with done or error set
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkCreateProgressDto(long created, Long lastId, long elapsedMillis, boolean done, String error) {
+}
@@ -0,0 +1,14 @@
+package pl.kurs.bank.common.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import pl.kurs.bank.account.model.MinorUnitsSerializer;
+
+import java.time.LocalDate;
+
+public record InterestAccrualDto(LocalDate date, Status status, int ranges, int completedRanges, long accounts,
+                                 @JsonSerialize(using = MinorUnitsSerializer.class) long interest) {
+
+    public enum Status {
+        NOT_STARTED, RUNNING, INTERRUPTED, COMPLETED
+    }
+}
@@ -0,0 +1,4 @@
+package pl.kurs.bank.common.dto;
+
+public record OperationRejectedDto(String message) {
+}
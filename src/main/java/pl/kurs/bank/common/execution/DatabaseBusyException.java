@@ -0,0 +1,19 @@
+package pl.kurs.bank.common.execution;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * No connection permit became free within the permit timeout; nothing was done and the request may be sent again
+ * after {@code retryAfter}.
+ */
+@Getter
+public class DatabaseBusyException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public DatabaseBusyException(Duration retryAfter) {
+        super(null, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+}
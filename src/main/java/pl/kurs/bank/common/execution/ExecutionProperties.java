@@ -0,0 +1,17 @@
+package pl.kurs.bank.common.execution;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bank.execution")
+public class ExecutionProperties {
+    private boolean virtualThreads = false;
+    // 0 means the size of the connection pool
+    private int maxConcurrentDbRequests = 0;
+    private Duration permitTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,78 @@
+package pl.kurs.bank.common.execution;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import pl.kurs.bank.account.shard.ShardingProperties;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in request execution on virtual threads (bank.execution.virtual-threads=true). The project targets Java 17,
+ * so the virtual thread executor is looked up reflectively; on a runtime without it Tomcat keeps its platform
+ * thread pool and only the {@link GatedDataSource} is applied.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.execution.virtual-threads", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    // wraps the application's DataSource, the properties are only looked up then, once they can be bound
+    @Bean
+    public static BeanPostProcessor gatedDataSourcePostProcessor(ObjectProvider<ExecutionProperties> properties,
+                                                                 ObjectProvider<ShardingProperties> sharding,
+                                                                 Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof GatedDataSource) {
+                    return bean;
+                }
+                ExecutionProperties execution = properties.getObject();
+                int limit = execution.getMaxConcurrentDbRequests() > 0 ? execution.getMaxConcurrentDbRequests()
+                        : poolSize(sharding.getObject(), environment);
+                log.info("Limiting connections in use to {}", limit);
+                return new GatedDataSource(dataSource, limit, execution.getPermitTimeout());
+            }
+        };
+    }
+
+    // with sharding the DataSource routes over one pool per shard, all of them can be in use at once
+    static int poolSize(ShardingProperties sharding, Environment environment) {
+        if (!sharding.isEnabled()) {
+            return environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        }
+        return sharding.getShards().stream().mapToInt(ShardingProperties.Shard::getMaximumPoolSize).sum();
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Serving requests on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, keeping the platform thread pool",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+}
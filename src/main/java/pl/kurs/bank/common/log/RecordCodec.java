@@ -0,0 +1,26 @@
+package pl.kurs.bank.common.log;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size binary form of the records of a {@link SegmentedLog}.
+ */
+public interface RecordCodec<R> {
+
+    int size();
+
+    long sequence(R record);
+
+    void write(R record, ByteBuffer buffer);
+
+    // null when the bytes are a torn or corrupted write
+    R read(ByteBuffer buffer);
+
+    // CRC32 of the given bytes, which records store to detect torn or corrupted writes
+    static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,275 @@
+package pl.kurs.bank.common.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of fixed-size records split into segments named after their first sequence number.
+ * Appends only write to the current segment; {@link #sync(long)} forces them to disk, and one force covers
+ * every append made before it, so concurrent writers share the cost of a single fsync (group commit).
+ * What happens to closed segments is up to the subclass.
+ * <p>
+ * A failed force leaves unknown which unforced appends reached the disk, so the log fails for good: the records
+ * above the last successful sync are cut off, each of their {@link #sync(long)} calls throws, and so does every
+ * later append. Syncs of records that were forced before keep succeeding.
+ */
+@Slf4j
+public abstract class SegmentedLog<R> implements AutoCloseable {
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final String prefix;
+    private final RecordCodec<R> codec;
+    private final boolean fsync;
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final ByteBuffer buffer;
+    // replaced only while holding both locks, so a force under syncLock never sees a closed segment
+    private volatile FileChannel segment;
+    private volatile long segmentFirstSequence;
+    private volatile long lastSequence;
+    private volatile long syncedSequence;
+    private volatile IOException failure;
+
+    protected SegmentedLog(Path directory, String prefix, RecordCodec<R> codec, boolean fsync) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.codec = codec;
+        this.fsync = fsync;
+        this.buffer = ByteBuffer.allocateDirect(codec.size());
+    }
+
+    /**
+     * Replays every intact record with a sequence above {@code afterSequence} in order, cuts off a torn tail
+     * left by a crash and opens a fresh segment for new appends. Segments entirely at or below
+     * {@code afterSequence} are not read.
+     */
+    public void open(long afterSequence, Consumer<R> replay) {
+        try {
+            Files.createDirectories(directory);
+            long last = afterSequence;
+            List<Path> segments = segments();
+            for (int i = 0; i < segments.size(); i++) {
+                if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                    continue;
+                }
+                last = Math.max(last, replaySegment(segments.get(i), afterSequence, replay));
+            }
+            lastSequence = last;
+            syncedSequence = last;
+            openSegment(last + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns once every record up to {@code sequence} is on disk.
+     *
+     * @throws IllegalStateException when the log has failed before or fails now, the record is then not logged
+     */
+    public void sync(long sequence) {
+        if (!fsync || syncedSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            checkNotFailed();
+            long target = lastSequence;
+            try {
+                force(segment);
+                syncedSequence = target;
+                return;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        discardUnsynced();
+        checkNotFailed();
+    }
+
+    /**
+     * Closes the current segment and starts a new one.
+     *
+     * @return the last sequence written to the closed segment
+     */
+    public long rotate() {
+        synchronized (appendLock) {
+            synchronized (syncLock) {
+                checkNotFailed();
+                try {
+                    long last = lastSequence;
+                    segment.force(false);
+                    segment.close();
+                    syncedSequence = last;
+                    openSegment(last + 1);
+                    return last;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (segment != null) {
+                if (failure == null) {
+                    segment.force(false);
+                }
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the record built for the next sequence to the current segment, without forcing it.
+     *
+     * @return the sequence of the record
+     */
+    protected long append(LongFunction<R> record) {
+        synchronized (appendLock) {
+            checkNotFailed();
+            long sequence = lastSequence + 1;
+            buffer.clear();
+            codec.write(record.apply(sequence), buffer);
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+            } catch (IOException e) {
+                discardFrom(sequence, e);
+                throw new UncheckedIOException(e);
+            }
+            lastSequence = sequence;
+            return sequence;
+        }
+    }
+
+    // the fsync of group commit, a test can make it fail like a broken disk
+    protected void force(FileChannel channel) throws IOException {
+        channel.force(false);
+    }
+
+    protected long currentSegmentSize() throws IOException {
+        return segment.size();
+    }
+
+    // every segment of this log, oldest first, the last one is the current segment
+    protected List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(prefix)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparingLong(this::firstSequence))
+                    .toList());
+        }
+    }
+
+    protected long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+    }
+
+    private void checkNotFailed() {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("The log failed to reach the disk and accepts no more records", cause);
+        }
+    }
+
+    // a partly written record would misalign every later one, the log fails when it cannot be cut off
+    private void discardFrom(long sequence, IOException cause) {
+        try {
+            segment.truncate((sequence - segmentFirstSequence) * codec.size());
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            failure = e;
+        }
+    }
+
+    // best effort, so that the records whose writers are told they failed are not replayed on the next start
+    private void discardUnsynced() {
+        synchronized (appendLock) {
+            synchronized (syncLock) {
+                try {
+                    segment.truncate((syncedSequence + 1 - segmentFirstSequence) * codec.size());
+                    segment.force(true);
+                } catch (IOException e) {
+                    log.error("Unable to cut the unsynced records off {}, the next start may replay them",
+                            directory, e);
+                }
+            }
+        }
+    }
+
+    private long replaySegment(Path path, long afterSequence, Consumer<R> replay) throws IOException {
+        int size = codec.size();
+        long last = afterSequence;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer records = ByteBuffer.allocate(size * 1024);
+            long position = 0;
+            while (true) {
+                records.clear();
+                int read = channel.read(records, position);
+                if (read <= 0) {
+                    break;
+                }
+                records.flip();
+                while (records.remaining() >= size) {
+                    R record = codec.read(records);
+                    if (record == null) {
+                        return truncate(channel, path, position, last);
+                    }
+                    position += size;
+                    if (codec.sequence(record) > afterSequence) {
+                        replay.accept(record);
+                        last = codec.sequence(record);
+                    }
+                }
+                if (read < size && records.hasRemaining()) {
+                    return truncate(channel, path, position, last);
+                }
+            }
+            if (position < channel.size()) {
+                return truncate(channel, path, position, last);
+            }
+        }
+        return last;
+    }
+
+    private static long truncate(FileChannel channel, Path path, long position, long last) throws IOException {
+        log.warn("Discarding {} bytes of incomplete records at the end of {}", channel.size() - position, path);
+        channel.truncate(position);
+        channel.force(true);
+        return last;
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(prefix + String.format("%020d", firstSequence) + SUFFIX);
+        segmentFirstSequence = firstSequence;
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
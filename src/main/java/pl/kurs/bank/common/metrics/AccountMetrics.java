@@ -0,0 +1,72 @@
+package pl.kurs.bank.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the account hot path. Meters are resolved once per tag combination and cached,
+ * so recording costs a map lookup and a lock-free histogram update.
+ */
+@Component
+public class AccountMetrics {
+
+    private static final String COMMITTED = "committed";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> lockWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> transactionTimers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter> rejectionCounters = new ConcurrentHashMap<>();
+
+    public AccountMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T recordLockWait(String source, Supplier<T> lockAcquisition) {
+        long start = System.nanoTime();
+        try {
+            return lockAcquisition.get();
+        } finally {
+            lockWaitTimers.computeIfAbsent(source, key -> Timer.builder("bank.account.lock.wait")
+                            .description("Time spent acquiring account row locks")
+                            .tag("source", key)
+                            .register(meterRegistry))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public <T> T recordTransaction(String operation, Supplier<T> transaction) {
+        long start = System.nanoTime();
+        String outcome = COMMITTED;
+        try {
+            return transaction.get();
+        } catch (RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            transactionTimer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer transactionTimer(String operation, String outcome) {
+        return transactionTimers.computeIfAbsent(operation + '/' + outcome, key -> Timer.builder("bank.account.transaction")
+                .description("Duration of account write operations including commit")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    public void recordRejection(Throwable exception) {
+        rejectionCounters.computeIfAbsent(exception.getClass(), type -> Counter.builder("bank.account.rejections")
+                        .description("Requests rejected with a business exception")
+                        .tag("exception", type.getSimpleName())
+                        .register(meterRegistry))
+                .increment();
+    }
+}
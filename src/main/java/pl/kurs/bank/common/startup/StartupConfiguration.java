@@ -0,0 +1,25 @@
+package pl.kurs.bank.common.startup;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.kurs.bank.account.controller.AccountController;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
+import pl.kurs.bank.account.service.AccountService;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+/**
+ * Beans still created on startup with spring.main.lazy-initialization=true, as in the prod profile. The write
+ * strategies and the write-behind queue recover journals and start their workers when they are created, which
+ * must not wait for the first request, and the account API is the request path itself. Beans that load state on
+ * {@code ApplicationReadyEvent} are created by that event and need no entry here.
+ */
+@Configuration
+public class StartupConfiguration {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerAccountBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(AccountUpdateStrategy.class, WriteBehindDepositQueue.class,
+                AccountService.class, AccountController.class);
+    }
+}
@@ -0,0 +1,43 @@
+package pl.kurs.bank.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import reactor.core.publisher.Mono;
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/api/v1/accounts")
+@RequiredArgsConstructor
+public class ReactiveAccountController {
+
+    private final ReactiveAccountService accountService;
+
+    @PostMapping("/{id}/withdraw")
+    public Mono<Void> withdraw(@PathVariable long id, @RequestBody WithdrawCashCommand command) {
+        return accountService.withdraw(command);
+    }
+
+    @PostMapping("/{id}/deposit")
+    public Mono<Void> deposit(@PathVariable long id, @RequestBody DepositCashCommand command) {
+        return accountService.deposit(command);
+    }
+
+    @PostMapping("/{id}/lock")
+    public Mono<Void> lock(@PathVariable long id) {
+        return accountService.lock(id);
+    }
+
+    @PostMapping("/{id}/unlock")
+    public Mono<Void> unlock(@PathVariable long id) {
+        return accountService.unlock(id);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<AccountView> getAccount(@PathVariable long id) {
+        return accountService.getAccount(id);
+    }
+}
@@ -0,0 +1,95 @@
+package pl.kurs.bank.reactive;
+
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes are single conditional UPDATEs: the WHERE clause carries the account rules, so the check and the change
+ * are one atomic statement and no row lock is held across a round trip. Each returns whether a row matched.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAccountRepository {
+
+    private final DatabaseClient databaseClient;
+
+    // striped accounts hold part of their balance in account_slot, which this check cannot see
+    public Mono<Boolean> withdraw(long id, long amount) {
+        return update("UPDATE account SET balance = balance - :amount, version = version + 1 "
+                + "WHERE id = :id AND locked = FALSE AND stripes = 0 AND balance >= :amount", id, amount);
+    }
+
+    public Mono<Boolean> deposit(long id, long amount) {
+        return databaseClient.sql("UPDATE account SET balance = balance + :amount, version = version + 1 "
+                        + "WHERE id = :id AND locked = FALSE AND balance <= :limit")
+                .bind("id", id)
+                .bind("amount", amount)
+                .bind("limit", Long.MAX_VALUE - amount)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows == 1);
+    }
+
+    public Mono<Boolean> setLocked(long id, boolean locked) {
+        return databaseClient.sql("UPDATE account SET locked = :locked, version = version + 1 "
+                        + "WHERE id = :id AND locked = :current")
+                .bind("id", id)
+                .bind("locked", locked)
+                .bind("current", !locked)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows == 1);
+    }
+
+    public Mono<Account> findById(long id) {
+        return databaseClient.sql("SELECT id, balance, creation_date, type, locked, stripes FROM account WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveAccountRepository::toAccount)
+                .one();
+    }
+
+    // a striped account's balance is its own plus its slots, as in StripedBalanceService
+    public Mono<AccountView> findViewById(long id) {
+        return databaseClient.sql("SELECT a.id, CAST(a.balance + COALESCE((SELECT SUM(s.balance) FROM account_slot s "
+                        + "WHERE s.account_id = a.id), 0) AS BIGINT) AS total, a.creation_date, a.type, a.locked "
+                        + "FROM account a WHERE a.id = :id")
+                .bind("id", id)
+                .map(row -> new AccountView(row.get("id", Long.class), row.get("total", Long.class),
+                        row.get("creation_date", LocalDateTime.class), type(row), row.get("locked", Boolean.class)))
+                .one();
+    }
+
+    private Mono<Boolean> update(String sql, long id, long amount) {
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .bind("amount", amount)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows == 1);
+    }
+
+    private static Account toAccount(Readable row) {
+        Account account = new Account();
+        account.setId(row.get("id", Long.class));
+        account.setBalanceMinor(row.get("balance", Long.class));
+        account.setCreationDate(row.get("creation_date", LocalDateTime.class));
+        account.setType(type(row));
+        account.setLocked(row.get("locked", Boolean.class));
+        account.setStripes(row.get("stripes", Integer.class));
+        return account;
+    }
+
+    private static Account.Type type(Readable row) {
+        String type = row.get("type", String.class);
+        return type == null ? null : Account.Type.valueOf(type);
+    }
+}
@@ -0,0 +1,84 @@
+package pl.kurs.bank.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import pl.kurs.bank.account.exception.AccountConcurrentUpdateException;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Account operations without blocking or row locks. When a conditional update matches no row, the account is read
+ * back and the same {@link Account} method the servlet API uses explains why, so both APIs reject with the same
+ * exceptions. If the rule passes on the fresh state, the row changed in between and the update is tried again.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Service
+@RequiredArgsConstructor
+public class ReactiveAccountService {
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private final ReactiveAccountRepository accountRepository;
+
+    public Mono<Void> withdraw(WithdrawCashCommand command) {
+        long id = command.getAccountId();
+        long amount = command.getAmountMinor();
+        if (amount <= 0) {
+            return Mono.error(new AccountOperationException("Amount to withdraw must be positive."));
+        }
+        return apply(id, () -> accountRepository.withdraw(id, amount), account -> {
+            if (account.getStripes() > 0 && !account.isLocked()) {
+                throw new AccountOperationException("Withdrawals from striped balances are not available in this API.");
+            }
+            account.withdraw(amount);
+        }, 1);
+    }
+
+    public Mono<Void> deposit(DepositCashCommand command) {
+        long id = command.getAccountId();
+        long amount = command.getAmountMinor();
+        if (amount <= 0) {
+            return Mono.error(new AccountOperationException("Amount to deposit must be positive."));
+        }
+        return apply(id, () -> accountRepository.deposit(id, amount), account -> account.deposit(amount), 1);
+    }
+
+    public Mono<Void> lock(long id) {
+        return apply(id, () -> accountRepository.setLocked(id, true), Account::lock, 1);
+    }
+
+    public Mono<Void> unlock(long id) {
+        return apply(id, () -> accountRepository.setLocked(id, false), Account::unlock, 1);
+    }
+
+    public Mono<AccountView> getAccount(long id) {
+        return accountRepository.findViewById(id)
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(id)));
+    }
+
+    private Mono<Void> apply(long id, Supplier<Mono<Boolean>> update, Consumer<Account> rule, int attempt) {
+        return update.get().flatMap(updated -> {
+            if (updated) {
+                return Mono.empty();
+            }
+            return accountRepository.findById(id)
+                    .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(id)))
+                    .flatMap(account -> {
+                        rule.accept(account);
+                        if (attempt >= MAX_ATTEMPTS) {
+                            return Mono.error(new AccountConcurrentUpdateException(id));
+                        }
+                        return apply(id, update, rule, attempt + 1);
+                    });
+        });
+    }
+}
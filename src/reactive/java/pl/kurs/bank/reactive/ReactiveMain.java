@@ -0,0 +1,43 @@
+package pl.kurs.bank.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import pl.kurs.bank.common.GlobalExceptionHandler;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+/**
+ * Non-blocking variant of the account API: Netty, WebFlux and R2DBC on the same database, schema and domain rules.
+ * Liquibase migrates the schema on startup from spring.liquibase.url, it needs no DataSource bean. The settings are
+ * in the reactive profile, so that they override the servlet application's.
+ * Only this package is scanned, so none of the blocking JPA services are created; the servlet application, which
+ * scans this package too, skips everything here because it is not a reactive web application.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class
+})
+@Import({GlobalExceptionHandler.class, AccountMetrics.class})
+public class ReactiveMain {
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveMain.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("reactive")
+                .run(args);
+    }
+
+    // spring-boot-starter-web keeps Tomcat on the classpath and Boot would pick it; this API belongs on Netty
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,146 @@
+package pl.kurs.bank.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import pl.kurs.bank.account.exception.AccountRejectedException;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+@SpringBootTest(classes = ReactiveMain.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///bank-db-zywko-reactive-it",
+        "spring.liquibase.url=jdbc:h2:mem:bank-db-zywko-reactive-it;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("reactive")
+class ReactiveAccountControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private DatabaseClient databaseClient;
+    @Autowired
+    private ReactiveAccountService accountService;
+
+    @Test
+    void shouldDepositAndWithdrawCash() {
+        //given:
+        long id = saveAccount(10_000L, false);
+
+        //when:
+        webTestClient.post().uri("/api/v1/accounts/{id}/deposit", id)
+                .bodyValue(deposit(id, "50"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/api/v1/accounts/{id}/withdraw", id)
+                .bodyValue(withdraw(id, "20.5"))
+                .exchange()
+                .expectStatus().isOk();
+
+        //then:
+        webTestClient.get().uri("/api/v1/accounts/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(129.5);
+    }
+
+    @Test
+    void shouldRejectWithDomainRules() {
+        //given:
+        long id = saveAccount(1_000L, true);
+
+        //when then:
+        webTestClient.post().uri("/api/v1/accounts/{id}/deposit", id)
+                .bodyValue(deposit(id, "5"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("ACCOUNT_LOCKED");
+        webTestClient.post().uri("/api/v1/accounts/{id}/unlock", id)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/api/v1/accounts/{id}/withdraw", id)
+                .bodyValue(withdraw(id, "50"))
+                .exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Unable to withdraw!");
+        webTestClient.post().uri("/api/v1/accounts/{id}/withdraw", -1)
+                .bodyValue(withdraw(-1, "1"))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldRefuseWithdrawalFromStripedAccount() {
+        //given:
+        long id = saveAccount(1_000L, false);
+        databaseClient.sql("UPDATE account SET stripes = 4 WHERE id = :id").bind("id", id).then().block();
+
+        //when then:
+        webTestClient.post().uri("/api/v1/accounts/{id}/withdraw", id)
+                .bodyValue(withdraw(id, "1"))
+                .exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Withdrawals from striped balances are not available in this API.");
+        webTestClient.get().uri("/api/v1/accounts/{id}", id)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(10);
+    }
+
+    @Test
+    void shouldNotOverdrawUnderConcurrentWithdrawals() {
+        //given:
+        long id = saveAccount(1_000L, false);
+
+        //when:
+        Flux.range(0, 50)
+                .flatMap(i -> accountService.withdraw(withdraw(id, "1"))
+                        .onErrorResume(AccountRejectedException.class, e -> Mono.empty()))
+                .blockLast();
+
+        //then:
+        webTestClient.get().uri("/api/v1/accounts/{id}", id)
+                .exchange()
+                .expectBody()
+                .jsonPath("$.balance").isEqualTo(0);
+    }
+
+    private long saveAccount(long balance, boolean locked) {
+        long id = databaseClient.sql("SELECT NEXT VALUE FOR account_seq AS id")
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        databaseClient.sql("INSERT INTO account (id, balance, type, locked, version, stripes) "
+                        + "VALUES (:id, :balance, 'REGULAR', :locked, 0, 0)")
+                .bind("id", id)
+                .bind("balance", balance)
+                .bind("locked", locked)
+                .then()
+                .block();
+        return id;
+    }
+
+    private static DepositCashCommand deposit(long accountId, String amount) {
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(accountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+
+    private static WithdrawCashCommand withdraw(long accountId, String amount) {
+        WithdrawCashCommand command = new WithdrawCashCommand();
+        command.setAccountId(accountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+}
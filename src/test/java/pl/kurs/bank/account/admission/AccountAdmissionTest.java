@@ -0,0 +1,90 @@
+package pl.kurs.bank.account.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+class AccountAdmissionTest {
+    private AdmissionProperties properties;
+
+    @BeforeEach
+    void init() {
+        properties = new AdmissionProperties();
+        properties.setTargetLatency(Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldRejectOperationOverAccountLimitUntilOneEnds() {
+        //given:
+        properties.setMaxPerAccount(2);
+        AccountAdmission underTest = new AccountAdmission(properties, new SimpleMeterRegistry());
+        AccountAdmission.Permit first = underTest.admit(1L);
+        underTest.admit(1L);
+
+        //when:
+        AccountOverloadedException exception = Assertions.assertThrows(AccountOverloadedException.class,
+                () -> underTest.admit(1L));
+
+        //then:
+        Assertions.assertEquals(1L, exception.getAccountId());
+        Assertions.assertDoesNotThrow(() -> underTest.admit(2L));
+        first.close();
+        Assertions.assertDoesNotThrow(() -> underTest.admit(1L));
+    }
+
+    @Test
+    void shouldRejectOperationOverGlobalLimitWithoutHoldingItsAccount() {
+        //given:
+        properties.setInitialLimit(2);
+        AccountAdmission underTest = new AccountAdmission(properties, new SimpleMeterRegistry());
+        underTest.admit(1L);
+        AccountAdmission.Permit second = underTest.admit(2L);
+
+        //when:
+        AccountOverloadedException exception = Assertions.assertThrows(AccountOverloadedException.class,
+                () -> underTest.admit(3L, 4L));
+
+        //then:
+        Assertions.assertNull(exception.getAccountId());
+        second.close();
+        Assertions.assertDoesNotThrow(() -> underTest.admit(3L, 4L));
+    }
+
+    @Test
+    void shouldBackOffOncePerTargetLatencyAndGrowWhileFast() {
+        //given:
+        properties.setInitialLimit(20);
+        AccountAdmission underTest = new AccountAdmission(properties, new SimpleMeterRegistry());
+
+        //when:
+        underTest.onCompleted(TimeUnit.MILLISECONDS.toNanos(200), false, 20);
+        underTest.onCompleted(TimeUnit.MILLISECONDS.toNanos(200), false, 20);
+
+        //then:
+        Assertions.assertEquals(18, underTest.limit());
+        for (int i = 0; i < 40; i++) {
+            underTest.onCompleted(TimeUnit.MILLISECONDS.toNanos(1), false, 18);
+        }
+        Assertions.assertEquals(20, underTest.limit());
+    }
+
+    @Test
+    void shouldFitAccountLimitToTargetLatency() {
+        //given:
+        properties.setMaxPerAccount(8);
+        AccountAdmission underTest = new AccountAdmission(properties, new SimpleMeterRegistry());
+
+        //when:
+        underTest.onCompleted(TimeUnit.MILLISECONDS.toNanos(10), true, 1);
+
+        //then:
+        Assertions.assertEquals(5, underTest.accountLimit());
+        underTest.onCompleted(TimeUnit.MILLISECONDS.toNanos(500), false, 1);
+        Assertions.assertEquals(5, underTest.accountLimit());
+    }
+}
@@ -0,0 +1,71 @@
+package pl.kurs.bank.account.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AccountReadCacheTest {
+    private AccountReadCache underTest;
+
+    @BeforeEach
+    void init() {
+        underTest = new AccountReadCache(new AccountCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldLoadAccountOnlyOnce() {
+        //given:
+        AtomicInteger loads = new AtomicInteger();
+
+        //when:
+        underTest.get(1L, () -> view(1L, 1000L, loads));
+        AccountView cached = underTest.get(1L, () -> view(1L, 2000L, loads));
+
+        //then:
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1000L, cached.balance());
+    }
+
+    @Test
+    void shouldReloadAccountAfterChange() {
+        //given:
+        AtomicInteger loads = new AtomicInteger();
+        underTest.get(1L, () -> view(1L, 1000L, loads));
+
+        //when:
+        underTest.evictAfterCommit(new AccountChangedEvent(1L));
+        AccountView reloaded = underTest.get(1L, () -> view(1L, 2000L, loads));
+
+        //then:
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(2000L, reloaded.balance());
+    }
+
+    @Test
+    void shouldNotCacheValueLoadedConcurrentlyWithChange() {
+        //given:
+        AtomicInteger loads = new AtomicInteger();
+
+        //when:
+        underTest.get(1L, () -> {
+            underTest.evictAfterCommit(new AccountChangedEvent(1L));
+            return view(1L, 1000L, loads);
+        });
+        AccountView reloaded = underTest.get(1L, () -> view(1L, 2000L, loads));
+
+        //then:
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(2000L, reloaded.balance());
+    }
+
+    private static AccountView view(long id, long balance, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new AccountView(id, balance, null, Account.Type.REGULAR, false);
+    }
+}
@@ -1,5 +1,6 @@
 package pl.kurs.bank.account.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -9,15 +10,29 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import pl.kurs.bank.Main;
+import pl.kurs.bank.account.lock.LockedAccountIndex;
 import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
 import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
 import pl.kurs.bank.account.repository.AccountRepository;
 
 import java.math.BigDecimal;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(classes = Main.class)
@@ -30,6 +45,8 @@ class AccountControllerTest {
     private AccountRepository accountRepository;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private LockedAccountIndex lockedAccountIndex;
 
     @Test
     void shouldDepositCash() throws Exception {
@@ -56,6 +73,37 @@ class AccountControllerTest {
         Assertions.assertTrue(new BigDecimal("1000").compareTo(accountFromDb.getBalance()) == 0);
     }
 
+    @Test
+    void shouldReturnFreshBalanceAfterDeposit() throws Exception {
+        //given:
+        Account testAccount = new Account();
+        testAccount.setType(Account.Type.REGULAR);
+        testAccount.setBalance(new BigDecimal("100"));
+        Account savedAccount = accountRepository.saveAndFlush(testAccount);
+
+        mockMvc.perform(get("/api/v1/accounts/" + savedAccount.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(100));
+
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(savedAccount.getId());
+        command.setAmount(new BigDecimal("50"));
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isOk());
+
+        //then:
+        mockMvc.perform(get("/api/v1/accounts/" + savedAccount.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(savedAccount.getId()))
+                .andExpect(jsonPath("$.balance").value(150))
+                .andExpect(jsonPath("$.type").value("REGULAR"))
+                .andExpect(jsonPath("$.locked").value(false));
+    }
+
     @Test
     void shouldNotDepositCash_accountNotFound() throws Exception {
         //given:
@@ -102,6 +150,30 @@ class AccountControllerTest {
 
     }
 
+    @Test
+    void shouldNotWithdrawCash_insufficientFunds() throws Exception {
+        //given:
+        Account testAccount = new Account();
+        testAccount.setType(Account.Type.REGULAR);
+        testAccount.setBalance(new BigDecimal("10"));
+        Account savedAccount = accountRepository.saveAndFlush(testAccount);
+
+        WithdrawCashCommand command = new WithdrawCashCommand();
+        command.setAccountId(savedAccount.getId());
+        command.setAmount(new BigDecimal("20"));
+
+        //when then:
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/withdraw")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(command)))
+                    .andExpect(status().isUnprocessableEntity())
+                    .andExpect(jsonPath("$.message").value("Insufficient funds for withdrawal."));
+        }
+        Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
+        Assertions.assertTrue(new BigDecimal("10").compareTo(accountFromDb.getBalance()) == 0);
+    }
+
     @Test
     void shouldLockAccount() throws Exception {
         //given:
@@ -117,6 +189,7 @@ class AccountControllerTest {
         //then:
         Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
         Assertions.assertTrue(accountFromDb.isLocked());
+        Assertions.assertTrue(lockedAccountIndex.isLocked(savedAccount.getId()));
     }
 
     @Test
@@ -155,6 +228,7 @@ class AccountControllerTest {
         //then:
         Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
         Assertions.assertFalse(accountFromDb.isLocked());
+        Assertions.assertFalse(lockedAccountIndex.isLocked(savedAccount.getId()));
     }
 
     @Test
@@ -177,5 +251,322 @@ class AccountControllerTest {
         Assertions.assertFalse(accountFromDb.isLocked());
     }
 
+    @Test
+    void shouldApplyBatchCommands() throws Exception {
+        //given:
+        Account testAccount = new Account();
+        testAccount.setType(Account.Type.REGULAR);
+        testAccount.setBalance(new BigDecimal("100"));
+        Account savedAccount = accountRepository.saveAndFlush(testAccount);
 
-}
\ No newline at end of file
+        BatchCashCommand command = new BatchCashCommand();
+        command.setCommands(List.of(
+                batchEntry(BatchCashCommand.Operation.DEPOSIT, savedAccount.getId(), "50"),
+                batchEntry(BatchCashCommand.Operation.WITHDRAW, savedAccount.getId(), "120"),
+                batchEntry(BatchCashCommand.Operation.WITHDRAW, savedAccount.getId(), "100"),
+                batchEntry(BatchCashCommand.Operation.DEPOSIT, -1, "10")));
+
+        String requestJson = objectMapper.writeValueAsString(command);
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("OK"))
+                .andExpect(jsonPath("$[2].status").value("REJECTED"))
+                .andExpect(jsonPath("$[3].status").value("ACCOUNT_NOT_FOUND"))
+                .andExpect(jsonPath("$[3].index").value(3));
+
+        //then:
+        Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
+        Assertions.assertTrue(new BigDecimal("30").compareTo(accountFromDb.getBalance()) == 0);
+    }
+
+    @Test
+    void shouldKeepBalanceAcrossStripes() throws Exception {
+        //given:
+        Account testAccount = new Account();
+        testAccount.setType(Account.Type.REGULAR);
+        testAccount.setBalance(new BigDecimal("10"));
+        Account savedAccount = accountRepository.saveAndFlush(testAccount);
+
+        mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/stripe").param("stripes", "4"))
+                .andExpect(status().isOk());
+
+        DepositCashCommand deposit = new DepositCashCommand();
+        deposit.setAccountId(savedAccount.getId());
+        deposit.setAmount(new BigDecimal("5"));
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/deposit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(deposit)))
+                    .andExpect(status().isOk());
+        }
+
+        WithdrawCashCommand withdraw = new WithdrawCashCommand();
+        withdraw.setAccountId(savedAccount.getId());
+        withdraw.setAmount(new BigDecimal("85"));
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/withdraw")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(withdraw)))
+                .andExpect(status().isOk());
+
+        //then:
+        Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
+        Assertions.assertEquals(4, accountFromDb.getStripes());
+        Assertions.assertTrue(BigDecimal.ZERO.compareTo(accountFromDb.getBalance()) == 0);
+        mockMvc.perform(get("/api/v1/accounts/" + savedAccount.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(25))
+                .andExpect(jsonPath("$.stripes").doesNotExist());
+    }
+
+    @Test
+    void shouldTransferConcurrentlyWithoutDeadlockOrLostMoney() throws Exception {
+        //given:
+        Account first = new Account();
+        first.setType(Account.Type.REGULAR);
+        first.setBalance(new BigDecimal("1000"));
+        Account second = new Account();
+        second.setType(Account.Type.SAVINGS);
+        second.setBalance(new BigDecimal("1000"));
+        long firstId = accountRepository.saveAndFlush(first).getId();
+        long secondId = accountRepository.saveAndFlush(second).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when:
+        for (int i = 0; i < 100; i++) {
+            long from = i % 2 == 0 ? firstId : secondId;
+            long to = i % 2 == 0 ? secondId : firstId;
+            futures.add(executor.submit(() -> mockMvc.perform(post("/api/v1/accounts/transfer")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(transfer(from, to, "3"))))
+                    .andExpect(status().isOk())));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then:
+        Assertions.assertTrue(new BigDecimal("1000").compareTo(accountRepository.findById(firstId).get().getBalance()) == 0);
+        Assertions.assertTrue(new BigDecimal("1000").compareTo(accountRepository.findById(secondId).get().getBalance()) == 0);
+    }
+
+    @Test
+    void shouldListAccountsPageByPage() throws Exception {
+        //given:
+        long firstId = saveAccount(Account.Type.SAVINGS, "1", false).getId() - 1;
+        saveAccount(Account.Type.REGULAR, "2", false);
+        saveAccount(Account.Type.SAVINGS, "3", true);
+        saveAccount(Account.Type.SAVINGS, "4", false);
+
+        //when then:
+        MvcResult firstPage = mockMvc.perform(get("/api/v1/accounts")
+                        .param("afterId", String.valueOf(firstId))
+                        .param("limit", "2")
+                        .param("type", "SAVINGS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts.length()").value(2))
+                .andExpect(jsonPath("$.accounts[0].balance").value(1))
+                .andExpect(jsonPath("$.accounts[1].balance").value(3))
+                .andReturn();
+        long nextAfterId = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextAfterId").asLong();
+        mockMvc.perform(get("/api/v1/accounts")
+                        .param("afterId", String.valueOf(nextAfterId))
+                        .param("limit", "2")
+                        .param("type", "SAVINGS")
+                        .param("locked", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts.length()").value(1))
+                .andExpect(jsonPath("$.accounts[0].balance").value(4))
+                .andExpect(jsonPath("$.nextAfterId").doesNotExist());
+    }
+
+    @Test
+    void shouldExportAccountsAsNdjson() throws Exception {
+        //given:
+        Account locked = saveAccount(Account.Type.REGULAR, "7.5", true);
+
+        //when:
+        MvcResult result = mockMvc.perform(get("/api/v1/accounts/export").param("locked", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then:
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : body.lines().toList()) {
+            rows.add(objectMapper.readTree(line));
+        }
+        Assertions.assertTrue(rows.stream().allMatch(row -> row.get("locked").asBoolean()));
+        JsonNode exported = rows.stream().filter(row -> row.get("id").asLong() == locked.getId()).findFirst().orElseThrow();
+        Assertions.assertEquals("7.5", exported.get("balance").asText());
+        Assertions.assertEquals("REGULAR", exported.get("type").asText());
+    }
+
+    @Test
+    void shouldCreateAccount() throws Exception {
+        //when:
+        MvcResult result = mockMvc.perform(post("/api/v1/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"SAVINGS\",\"balance\":12.5}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.balance").value(12.5))
+                .andReturn();
+
+        //then:
+        long id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+        Account accountFromDb = accountRepository.findById(id).orElseThrow();
+        Assertions.assertEquals(1_250L, accountFromDb.getBalanceMinor());
+        Assertions.assertEquals(Account.Type.SAVINGS, accountFromDb.getType());
+        Assertions.assertNotNull(accountFromDb.getCreationDate());
+    }
+
+    @Test
+    void shouldBulkCreateAccountsInChunks() throws Exception {
+        //given:
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2_500; i++) {
+            body.append("{\"type\":\"REGULAR\",\"balance\":1}\n");
+        }
+        long countBefore = accountRepository.count();
+
+        //when:
+        String response = mockMvc.perform(post("/api/v1/accounts/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        //then:
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : response.lines().toList()) {
+            lines.add(objectMapper.readTree(line));
+        }
+        Assertions.assertEquals(List.of(1_000L, 2_000L, 2_500L), lines.stream().map(line -> line.get("created").asLong()).toList());
+        Assertions.assertTrue(lines.get(2).get("done").asBoolean());
+        Assertions.assertEquals(countBefore + 2_500, accountRepository.count());
+    }
+
+    @Test
+    void shouldStopBulkCreateAtInvalidLine() throws Exception {
+        //given:
+        long countBefore = accountRepository.count();
+
+        //when:
+        String response = mockMvc.perform(post("/api/v1/accounts/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"type\":\"REGULAR\",\"balance\":1}\n{\"balance\":1}\n"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then:
+        JsonNode summary = objectMapper.readTree(response);
+        Assertions.assertEquals(0, summary.get("created").asLong());
+        Assertions.assertFalse(summary.get("done").asBoolean());
+        Assertions.assertEquals("Line 2: Account type is required.", summary.get("error").asText());
+        Assertions.assertEquals(countBefore, accountRepository.count());
+    }
+
+    @Test
+    void shouldKeepStatsUpToDate() throws Exception {
+        //given:
+        JsonNode before = stats();
+
+        //when:
+        MvcResult created = mockMvc.perform(post("/api/v1/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"SAVINGS\",\"balance\":100}"))
+                .andReturn();
+        long id = objectMapper.readTree(created.getResponse().getContentAsString()).get("id").asLong();
+        DepositCashCommand deposit = new DepositCashCommand();
+        deposit.setAccountId(id);
+        deposit.setAmount(new BigDecimal("25"));
+        mockMvc.perform(post("/api/v1/accounts/" + id + "/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(deposit)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/accounts/" + id + "/lock"))
+                .andExpect(status().isOk());
+
+        //then:
+        JsonNode after = stats();
+        Assertions.assertEquals(0, cell(after, "SAVINGS", false).get("accounts").asLong()
+                - cell(before, "SAVINGS", false).get("accounts").asLong());
+        Assertions.assertEquals(1, cell(after, "SAVINGS", true).get("accounts").asLong()
+                - cell(before, "SAVINGS", true).get("accounts").asLong());
+        Assertions.assertEquals(0, new BigDecimal("125").compareTo(cell(after, "SAVINGS", true).get("balance").decimalValue()
+                .subtract(cell(before, "SAVINGS", true).get("balance").decimalValue())));
+    }
+
+    @Test
+    void shouldExposeAccountMetrics() throws Exception {
+        //given:
+        Account testAccount = new Account();
+        testAccount.setType(Account.Type.REGULAR);
+        testAccount.setBalance(BigDecimal.ZERO);
+        testAccount.setLocked(true);
+        Account savedAccount = accountRepository.saveAndFlush(testAccount);
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/" + savedAccount.getId() + "/lock"))
+                .andExpect(status().isConflict());
+
+        //then:
+        mockMvc.perform(get("/actuator/metrics/bank.account.rejections").param("tag", "exception:AccountLockedException"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/bank.account.lock.wait").param("tag", "source:account"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/bank.account.transaction").param("tag", "operation:lock"))
+                .andExpect(status().isOk());
+    }
+
+    private JsonNode stats() throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get("/api/v1/accounts/stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private static JsonNode cell(JsonNode stats, String type, boolean locked) {
+        for (JsonNode totals : stats.get("totals")) {
+            if (totals.get("type").asText().equals(type) && totals.get("locked").asBoolean() == locked) {
+                return totals;
+            }
+        }
+        throw new AssertionError("No totals for " + type + " locked=" + locked);
+    }
+
+    private Account saveAccount(Account.Type type, String balance, boolean locked) {
+        Account account = new Account();
+        account.setType(type);
+        account.setBalance(new BigDecimal(balance));
+        account.setLocked(locked);
+        return accountRepository.saveAndFlush(account);
+    }
+
+    private static TransferCashCommand transfer(long fromAccountId, long toAccountId, String amount) {
+        TransferCashCommand command = new TransferCashCommand();
+        command.setFromAccountId(fromAccountId);
+        command.setToAccountId(toAccountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+
+    private static BatchCashCommand.Entry batchEntry(BatchCashCommand.Operation operation, long accountId, String amount) {
+        BatchCashCommand.Entry entry = new BatchCashCommand.Entry();
+        entry.setOperation(operation);
+        entry.setAccountId(accountId);
+        entry.setAmount(new BigDecimal(amount));
+        return entry;
+    }
+}
@@ -0,0 +1,116 @@
+package pl.kurs.bank.account.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.admission.AccountAdmission;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-admission",
+        "bank.account.admission.enabled=true",
+        "bank.account.admission.max-per-account=1"
+})
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class AdmissionControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountAdmission accountAdmission;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldRejectBusyAccountWith429AndServeOthers() throws Exception {
+        //given:
+        Account busy = saveAccount();
+        Account other = saveAccount();
+
+        //when:
+        try (AccountAdmission.Permit ignored = accountAdmission.admit(busy.getId())) {
+            mockMvc.perform(post("/api/v1/accounts/" + busy.getId() + "/deposit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(deposit(busy)))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.accountId").value(busy.getId()))
+                    .andExpect(jsonPath("$.message").value("ACCOUNT_OVERLOADED"));
+            mockMvc.perform(post("/api/v1/accounts/" + other.getId() + "/deposit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(deposit(other)))
+                    .andExpect(status().isOk());
+        }
+
+        //then:
+        mockMvc.perform(post("/api/v1/accounts/" + busy.getId() + "/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(deposit(busy)))
+                .andExpect(status().isOk());
+        Assertions.assertEquals(1_000L, accountRepository.findById(busy.getId()).orElseThrow().getBalanceMinor());
+    }
+
+    @Test
+    void shouldReportBatchGroupOnBusyAccountAsOverloaded() throws Exception {
+        //given:
+        Account busy = saveAccount();
+        BatchCashCommand command = new BatchCashCommand();
+        command.setCommands(List.of(batchDeposit(busy), batchDeposit(saveAccount())));
+
+        //when:
+        try (AccountAdmission.Permit ignored = accountAdmission.admit(busy.getId())) {
+            mockMvc.perform(post("/api/v1/accounts/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(command)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value("OVERLOADED"))
+                    .andExpect(jsonPath("$[1].status").value("OVERLOADED"));
+        }
+
+        //then:
+        Assertions.assertEquals(0L, accountRepository.findById(busy.getId()).orElseThrow().getBalanceMinor());
+        mockMvc.perform(post("/api/v1/accounts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("OK"));
+    }
+
+    private static BatchCashCommand.Entry batchDeposit(Account account) {
+        BatchCashCommand.Entry entry = new BatchCashCommand.Entry();
+        entry.setOperation(BatchCashCommand.Operation.DEPOSIT);
+        entry.setAccountId(account.getId());
+        entry.setAmount(BigDecimal.TEN);
+        return entry;
+    }
+
+    private static String deposit(Account account) {
+        return "{\"accountId\":" + account.getId() + ",\"amount\":10}";
+    }
+
+    private Account saveAccount() {
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(BigDecimal.ZERO);
+        return accountRepository.saveAndFlush(account);
+    }
+}
@@ -0,0 +1,68 @@
+package pl.kurs.bank.account.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+import pl.kurs.bank.common.execution.GatedDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-gate",
+        "bank.execution.virtual-threads=true",
+        "bank.execution.max-concurrent-db-requests=1",
+        "bank.execution.permit-timeout=50ms"
+})
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class DatabaseGateControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void shouldGateOnlyRequestsThatNeedConnection() throws Exception {
+        //given:
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(BigDecimal.ZERO);
+        long id = accountRepository.saveAndFlush(account).getId();
+        accountService.lock(id);
+        Assertions.assertInstanceOf(GatedDataSource.class, dataSource);
+
+        //when:
+        try (Connection ignored = dataSource.getConnection()) {
+            //then:
+            mockMvc.perform(post("/api/v1/accounts/" + id + "/deposit")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"accountId\":" + id + ",\"amount\":10}"))
+                    .andExpect(status().isConflict());
+            mockMvc.perform(get("/api/v1/accounts").param("limit", "10"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        }
+        mockMvc.perform(get("/api/v1/accounts").param("limit", "10"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,98 @@
+package pl.kurs.bank.account.controller;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.interest.InterestAccrualRange;
+import pl.kurs.bank.account.interest.InterestAccrualRangeRepository;
+import pl.kurs.bank.account.interest.InterestAccrualService;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class)
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class InterestAccrualControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private InterestAccrualRangeRepository rangeRepository;
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Test
+    void shouldAccrueInterestOnUnlockedSavingsAccountsOnce() throws Exception {
+        //given:
+        Account savings = saveAccount(Account.Type.SAVINGS, "1000", false);
+        Account locked = saveAccount(Account.Type.SAVINGS, "1000", true);
+        Account regular = saveAccount(Account.Type.REGULAR, "1000", false);
+
+        //when:
+        mockMvc.perform(post("/api/v1/interest-accruals/2026-01-01"))
+                .andExpect(status().isAccepted());
+        interestAccrualService.accrue(LocalDate.parse("2026-01-01")).get(30, TimeUnit.SECONDS);
+        interestAccrualService.accrue(LocalDate.parse("2026-01-01")).get(30, TimeUnit.SECONDS);
+
+        //then:
+        mockMvc.perform(get("/api/v1/interest-accruals/2026-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        Assertions.assertEquals(100_010L, balance(savings));
+        Assertions.assertEquals(100_000L, balance(locked));
+        Assertions.assertEquals(100_000L, balance(regular));
+    }
+
+    @Test
+    void shouldResumeFromCheckpoint() throws Exception {
+        //given:
+        Account processed = saveAccount(Account.Type.SAVINGS, "1000", false);
+        Account remaining = saveAccount(Account.Type.SAVINGS, "1000", false);
+        // a run interrupted after committing the chunk that ended with the first account
+        InterestAccrualRange range = new InterestAccrualRange();
+        range.setAccrualDate(LocalDate.parse("2026-01-02"));
+        range.setNextId(processed.getId() + 1);
+        range.setEndId(remaining.getId() + 1);
+        rangeRepository.save(range);
+        mockMvc.perform(get("/api/v1/interest-accruals/2026-01-02"))
+                .andExpect(jsonPath("$.status").value("INTERRUPTED"));
+
+        //when:
+        interestAccrualService.accrue(LocalDate.parse("2026-01-02")).get(30, TimeUnit.SECONDS);
+
+        //then:
+        Assertions.assertEquals(100_000L, balance(processed));
+        Assertions.assertEquals(100_010L, balance(remaining));
+        mockMvc.perform(get("/api/v1/interest-accruals/2026-01-02"))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.accounts").value(1))
+                .andExpect(jsonPath("$.interest").value(0.1));
+    }
+
+    private Account saveAccount(Account.Type type, String balance, boolean locked) {
+        Account account = new Account();
+        account.setType(type);
+        account.setBalance(new BigDecimal(balance));
+        account.setLocked(locked);
+        return accountRepository.saveAndFlush(account);
+    }
+
+    private long balance(Account account) {
+        return accountRepository.findById(account.getId()).orElseThrow().getBalanceMinor();
+    }
+}
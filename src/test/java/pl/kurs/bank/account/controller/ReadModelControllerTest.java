@@ -0,0 +1,75 @@
+package pl.kurs.bank.account.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.readmodel.AccountReadModel;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.math.BigDecimal;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-read-model",
+        "bank.account.read-mode=model"
+})
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class ReadModelControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private AccountReadModel accountReadModel;
+
+    @Test
+    void shouldServeProjectedBalanceWithMarker() throws Exception {
+        //given:
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(new BigDecimal("100"));
+        Account saved = accountRepository.saveAndFlush(account);
+        mockMvc.perform(get("/api/v1/accounts/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(100));
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(saved.getId());
+        command.setAmount(new BigDecimal("50"));
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/" + saved.getId() + "/deposit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(command)))
+                .andExpect(status().isOk());
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (accountReadModel.marker().pending() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //then:
+        Assertions.assertEquals(0, accountReadModel.marker().pending());
+        mockMvc.perform(get("/api/v1/accounts/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(150))
+                .andExpect(header().string("X-Read-Model-Pending", "0"))
+                .andExpect(header().string("X-Read-Model-Staleness-Ms", "0"))
+                .andExpect(header().exists("X-Read-Model-Sequence"));
+    }
+}
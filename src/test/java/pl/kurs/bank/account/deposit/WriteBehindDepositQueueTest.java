@@ -0,0 +1,192 @@
+package pl.kurs.bank.account.deposit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class WriteBehindDepositQueueTest {
+
+    @TempDir
+    private Path directory;
+    private AccountRepository mockAccountRepository;
+    private DepositCheckpointRepository mockCheckpointRepository;
+    // what the database holds: balances by account id and the committed checkpoint
+    private final Map<Long, Long> balances = new HashMap<>();
+    private final DepositCheckpoint checkpoint = new DepositCheckpoint();
+
+    @BeforeEach
+    void setUp() {
+        balances.put(1L, 10_000L);
+        balances.put(2L, 0L);
+        mockAccountRepository = mock(AccountRepository.class);
+        mockCheckpointRepository = mock(DepositCheckpointRepository.class);
+        when(mockAccountRepository.addToBalance(anyLong(), anyLong())).thenAnswer(invocation -> {
+            balances.merge(invocation.getArgument(0), invocation.getArgument(1), Long::sum);
+            return 1;
+        });
+        when(mockCheckpointRepository.findById(DepositCheckpoint.ID)).thenReturn(Optional.of(checkpoint));
+        when(mockCheckpointRepository.findCheckpointedView(anyLong())).thenAnswer(invocation -> {
+            Long balance = balances.get(invocation.<Long>getArgument(0));
+            return Optional.ofNullable(balance).map(value -> new CheckpointedAccountView(invocation.getArgument(0),
+                    value, null, Account.Type.REGULAR, false, checkpoint.getAppliedSequence()));
+        });
+    }
+
+    @Test
+    void shouldAddPendingDepositsToReads() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+
+        //when:
+        underTest.accept(1L, 500L);
+        underTest.accept(1L, 250L);
+
+        //then:
+        Assertions.assertEquals(10_750L, underTest.find(1L).balance());
+        Assertions.assertEquals(10_000L, balances.get(1L));
+        verify(mockAccountRepository, never()).addToBalance(anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldApplyDepositsSummedPerAccount() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+        underTest.accept(1L, 100L);
+        underTest.accept(2L, 7L);
+        underTest.accept(1L, 200L);
+        underTest.accept(1L, 300L);
+
+        //when:
+        underTest.flush();
+
+        //then:
+        verify(mockAccountRepository).addToBalance(1L, 600L);
+        verify(mockAccountRepository).addToBalance(2L, 7L);
+        Assertions.assertEquals(4L, checkpoint.getAppliedSequence());
+        Assertions.assertEquals(10_600L, underTest.find(1L).balance());
+        Assertions.assertEquals(0, underTest.pendingAccounts());
+    }
+
+    @Test
+    void shouldApplyPendingDepositsOnlyWhenAccountHasSome() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+        underTest.accept(1L, 500L);
+
+        //when:
+        underTest.applyPending(2L);
+        underTest.applyPending(1L);
+
+        //then:
+        verify(mockAccountRepository, times(1)).addToBalance(1L, 500L);
+        Assertions.assertEquals(10_500L, balances.get(1L));
+        Assertions.assertEquals(0, underTest.pendingAccounts());
+    }
+
+    @Test
+    void shouldRecoverPendingDepositsAfterCrash() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+        underTest.accept(1L, 500L);
+        // no flush: the process "crashes" with the deposit only in the log
+
+        //when:
+        WriteBehindDepositQueue restarted = start();
+
+        //then:
+        Assertions.assertEquals(10_500L, restarted.find(1L).balance());
+        restarted.flush();
+        Assertions.assertEquals(10_500L, balances.get(1L));
+    }
+
+    @Test
+    void shouldNotApplyDepositsAgainAfterRestart() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+        underTest.accept(1L, 500L);
+        underTest.flush();
+
+        //when:
+        WriteBehindDepositQueue restarted = start();
+        restarted.flush();
+
+        //then:
+        Assertions.assertEquals(10_500L, restarted.find(1L).balance());
+        verify(mockAccountRepository, times(1)).addToBalance(1L, 500L);
+    }
+
+    @Test
+    void shouldNotApplyDepositWhoseLogSyncFailed() {
+        //given:
+        boolean[] diskFails = {false};
+        WriteBehindDepositQueue underTest = start(new DepositLog(directory, true) {
+            @Override
+            protected void force(FileChannel channel) throws IOException {
+                if (diskFails[0]) {
+                    throw new IOException("disk failed");
+                }
+                super.force(channel);
+            }
+        });
+        underTest.accept(1L, 500L);
+        diskFails[0] = true;
+
+        //when:
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.accept(1L, 250L));
+        underTest.flush();
+
+        //then:
+        Assertions.assertEquals(10_500L, underTest.find(1L).balance());
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.accept(2L, 1L));
+        verify(mockAccountRepository, never()).addToBalance(anyLong(), anyLong());
+
+        WriteBehindDepositQueue restarted = start();
+        restarted.flush();
+        Assertions.assertEquals(10_500L, balances.get(1L));
+        verify(mockAccountRepository, times(1)).addToBalance(anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldThrowAccountNotFoundExceptionForUnknownAccount() {
+        //given:
+        WriteBehindDepositQueue underTest = start();
+
+        //when then:
+        Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.find(3L));
+    }
+
+    private WriteBehindDepositQueue start() {
+        return start(new DepositLog(directory, true));
+    }
+
+    private WriteBehindDepositQueue start(DepositLog depositLog) {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setDirectory(directory);
+        // flushes are driven by the tests
+        properties.setFlushInterval(Duration.ofHours(1));
+        WriteBehindDepositQueue queue = new WriteBehindDepositQueue(mockAccountRepository, mockCheckpointRepository,
+                mock(AccountUpdateStrategy.class, CALLS_REAL_METHODS), mock(ApplicationEventPublisher.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), properties, depositLog);
+        queue.start();
+        return queue;
+    }
+}
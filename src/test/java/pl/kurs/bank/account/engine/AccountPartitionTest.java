@@ -0,0 +1,82 @@
+package pl.kurs.bank.account.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.exception.AccountOverloadedException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class AccountPartitionTest {
+
+    private AccountRepository mockAccountRepository;
+    private PartitionedEngineProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        mockAccountRepository = mock(AccountRepository.class);
+        properties = new PartitionedEngineProperties();
+        properties.setPartitions(1);
+        properties.setUpdateTimeout(Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldFailUpdatesLeftQueuedWhenStopped() throws Exception {
+        //given:
+        AccountPartition underTest = new AccountPartition(0, properties, mockAccountRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new AccountMetrics(new SimpleMeterRegistry()));
+        CompletableFuture<Void> result = underTest.submit(1L, account -> account.deposit(100L)).result();
+
+        //when:
+        underTest.stop();
+
+        //then:
+        CompletionException exception = Assertions.assertThrows(CompletionException.class, result::join);
+        Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.submit(1L, account -> account.deposit(1L)));
+    }
+
+    @Test
+    void shouldRefuseUpdateStillQueuedAfterTimeout() {
+        //given:
+        // partitions are not started, nothing takes the update off the queue
+        PartitionedAccountEngine underTest = new PartitionedAccountEngine(properties, mockAccountRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new AccountMetrics(new SimpleMeterRegistry()));
+
+        //when:
+        AccountOverloadedException exception = Assertions.assertThrows(AccountOverloadedException.class,
+                () -> underTest.update(1L, account -> account.deposit(100L)));
+
+        //then:
+        Assertions.assertEquals(1L, exception.getAccountId());
+        verifyNoInteractions(mockAccountRepository);
+    }
+
+    @Test
+    void shouldNotApplyUpdateWithdrawnBySubmitter() throws Exception {
+        //given:
+        AccountPartition underTest = new AccountPartition(0, properties, mockAccountRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new AccountMetrics(new SimpleMeterRegistry()));
+        AccountPartition.PendingUpdate update = underTest.submit(1L, Account::lock);
+        Assertions.assertTrue(update.claim());
+
+        //when:
+        underTest.start();
+        underTest.stop();
+
+        //then:
+        Assertions.assertFalse(update.result().isDone());
+        verifyNoInteractions(mockAccountRepository);
+    }
+}
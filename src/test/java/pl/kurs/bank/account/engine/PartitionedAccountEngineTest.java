@@ -0,0 +1,115 @@
+package pl.kurs.bank.account.engine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.exception.AccountLockedException;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountService;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-partitioned",
+        "bank.account.write-mode=partitioned",
+        "bank.account.partitioned.partitions=2"
+})
+@ActiveProfiles("it")
+class PartitionedAccountEngineTest {
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUpdateStrategy updateStrategy;
+
+    @Test
+    void shouldUsePartitionedEngine() {
+        Assertions.assertInstanceOf(PartitionedAccountEngine.class, updateStrategy);
+    }
+
+    @Test
+    void shouldApplyConcurrentCommandsWithoutLosingUpdates() throws Exception {
+        //given:
+        Account account = saveAccount(new BigDecimal("1000"), false);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when:
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> accountService.deposit(deposit(account.getId(), "2"))));
+            futures.add(executor.submit(() -> accountService.withdraw(withdraw(account.getId(), "1"))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then:
+        Account accountFromDb = accountRepository.findById(account.getId()).get();
+        Assertions.assertEquals(0, new BigDecimal("1200").compareTo(accountFromDb.getBalance()));
+    }
+
+    @Test
+    void shouldRejectOnlyFailingCommand() {
+        //given:
+        Account account = saveAccount(new BigDecimal("100"), false);
+
+        //when:
+        Assertions.assertThrows(AccountOperationException.class,
+                () -> accountService.withdraw(withdraw(account.getId(), "500")));
+        accountService.withdraw(withdraw(account.getId(), "40"));
+
+        //then:
+        Account accountFromDb = accountRepository.findById(account.getId()).get();
+        Assertions.assertEquals(0, new BigDecimal("60").compareTo(accountFromDb.getBalance()));
+    }
+
+    @Test
+    void shouldPropagateBusinessExceptions() {
+        //given:
+        Account lockedAccount = saveAccount(BigDecimal.ZERO, true);
+
+        //when & then:
+        Assertions.assertThrows(AccountLockedException.class,
+                () -> accountService.deposit(deposit(lockedAccount.getId(), "10")));
+        Assertions.assertThrows(AccountNotFoundException.class,
+                () -> accountService.deposit(deposit(-1L, "10")));
+    }
+
+    private Account saveAccount(BigDecimal balance, boolean locked) {
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(balance);
+        account.setLocked(locked);
+        return accountRepository.saveAndFlush(account);
+    }
+
+    private static DepositCashCommand deposit(long accountId, String amount) {
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(accountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+
+    private static WithdrawCashCommand withdraw(long accountId, String amount) {
+        WithdrawCashCommand command = new WithdrawCashCommand();
+        command.setAccountId(accountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+}
@@ -0,0 +1,197 @@
+package pl.kurs.bank.account.journal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalApplicationListener;
+import pl.kurs.bank.account.exception.AccountNotFoundException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+class JournalAccountStrategyTest {
+
+    @TempDir
+    private Path directory;
+    private AccountRepository mockAccountRepository;
+
+    @BeforeEach
+    void setUp() {
+        mockAccountRepository = mock(AccountRepository.class);
+        Account account = new Account();
+        account.setId(1L);
+        account.setType(Account.Type.REGULAR);
+        account.setBalanceMinor(10_000L);
+        when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
+    }
+
+    @Test
+    void shouldRebuildBalancesFromJournalAfterRestart() throws Exception {
+        //given:
+        JournalAccountStrategy underTest = start();
+        underTest.update(1L, account -> account.deposit(500L));
+        underTest.update(1L, account -> account.withdraw(200L));
+        underTest.update(1L, Account::lock);
+        underTest.stop();
+        when(mockAccountRepository.findById(1L)).thenReturn(Optional.empty());
+
+        //when:
+        JournalAccountStrategy restarted = start();
+
+        //then:
+        Account account = restarted.find(1L).orElseThrow();
+        Assertions.assertEquals(10_300L, account.getBalanceMinor());
+        Assertions.assertTrue(account.isLocked());
+        Assertions.assertEquals(Account.Type.REGULAR, account.getType());
+    }
+
+    @Test
+    void shouldRebuildFromSnapshotAndJournalTail() throws Exception {
+        //given:
+        JournalAccountStrategy underTest = start();
+        underTest.update(1L, account -> account.deposit(500L));
+        underTest.snapshot();
+        underTest.update(1L, account -> account.deposit(1L));
+        // no stop(): the process "crashes" without a final snapshot
+
+        //when:
+        JournalAccountStrategy restarted = start();
+
+        //then:
+        Assertions.assertEquals(10_501L, restarted.find(1L).orElseThrow().getBalanceMinor());
+        Assertions.assertTrue(files("snapshot-").findAny().isPresent());
+    }
+
+    @Test
+    void shouldDiscardTornRecordAtEndOfJournal() throws Exception {
+        //given:
+        JournalAccountStrategy underTest = start();
+        underTest.update(1L, account -> account.deposit(500L));
+        // no stop(): the process "crashes" without a final snapshot
+        Path segment = files("journal-").reduce((first, second) -> second).orElseThrow();
+        Files.write(segment, new byte[JournalRecord.SIZE / 2], StandardOpenOption.APPEND);
+
+        //when:
+        JournalAccountStrategy restarted = start();
+        restarted.update(1L, account -> account.deposit(1L));
+
+        //then:
+        Assertions.assertEquals(10_501L, restarted.find(1L).orElseThrow().getBalanceMinor());
+    }
+
+    @Test
+    void shouldLeaveNoTraceOfRejectedOperation() throws Exception {
+        //given:
+        JournalAccountStrategy underTest = start();
+
+        //when:
+        Assertions.assertThrows(AccountOperationException.class,
+                () -> underTest.update(1L, account -> account.withdraw(20_000L)));
+        // no stop(): the process "crashes" without a final snapshot
+
+        //then:
+        Assertions.assertEquals(10_000L, start().find(1L).orElseThrow().getBalanceMinor());
+    }
+
+    @Test
+    void shouldUndoChangeWhoseJournalSyncFailed() throws Exception {
+        //given:
+        boolean[] diskFails = {false};
+        JournalAccountStrategy underTest = start(new OperationJournal(directory, true) {
+            @Override
+            protected void force(FileChannel channel) throws IOException {
+                if (diskFails[0]) {
+                    throw new IOException("disk failed");
+                }
+                super.force(channel);
+            }
+        });
+        underTest.update(1L, account -> account.deposit(500L));
+        diskFails[0] = true;
+
+        //when:
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.update(1L, account -> account.deposit(250L)));
+
+        //then:
+        Assertions.assertEquals(10_500L, underTest.find(1L).orElseThrow().getBalanceMinor());
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.update(1L, account -> account.deposit(1L)));
+        Assertions.assertEquals(10_500L, underTest.find(1L).orElseThrow().getBalanceMinor());
+        // no stop(): the process "crashes" without a final snapshot
+        Assertions.assertEquals(10_500L, start().find(1L).orElseThrow().getBalanceMinor());
+    }
+
+    @Test
+    void shouldDeliverEventsOnlyOfChangesThatAreDurable() throws Exception {
+        //given:
+        boolean[] diskFails = {false};
+        JournalAccountStrategy underTest = start(new OperationJournal(directory, true) {
+            @Override
+            protected void force(FileChannel channel) throws IOException {
+                if (diskFails[0]) {
+                    throw new IOException("disk failed");
+                }
+                super.force(channel);
+            }
+        });
+        List<Long> delivered = new ArrayList<>();
+        TransactionalApplicationListener<PayloadApplicationEvent<Long>> listener =
+                TransactionalApplicationListener.forPayload(TransactionPhase.AFTER_COMMIT, delivered::add);
+        underTest.update(1L, account -> {
+            listener.onApplicationEvent(new PayloadApplicationEvent<>(this, 500L));
+            Assertions.assertTrue(delivered.isEmpty());
+            account.deposit(500L);
+        });
+        diskFails[0] = true;
+
+        //when:
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.update(1L, account -> {
+            listener.onApplicationEvent(new PayloadApplicationEvent<>(this, 250L));
+            account.deposit(250L);
+        }));
+
+        //then:
+        Assertions.assertEquals(List.of(500L), delivered);
+    }
+
+    @Test
+    void shouldThrowAccountNotFoundExceptionForUnknownAccount() throws Exception {
+        //given:
+        JournalAccountStrategy underTest = start();
+
+        //when then:
+        Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.update(2L, account -> account.deposit(1L)));
+    }
+
+    private JournalAccountStrategy start() throws IOException {
+        return start(new OperationJournal(directory, true));
+    }
+
+    private JournalAccountStrategy start(OperationJournal journal) throws IOException {
+        JournalProperties properties = new JournalProperties();
+        properties.setDirectory(directory);
+        JournalAccountStrategy strategy = new JournalAccountStrategy(mockAccountRepository, properties, journal);
+        strategy.start();
+        return strategy;
+    }
+
+    private Stream<Path> files(String prefix) throws IOException {
+        return Files.list(directory)
+                .filter(path -> path.getFileName().toString().startsWith(prefix))
+                .sorted();
+    }
+}
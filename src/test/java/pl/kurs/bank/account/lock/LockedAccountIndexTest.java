@@ -0,0 +1,76 @@
+package pl.kurs.bank.account.lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.kurs.bank.account.model.event.AccountLockChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.shard.ShardingProperties;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LockedAccountIndexTest {
+    private AccountRepository mockAccountRepository;
+    private AccountUpdateStrategy mockUpdateStrategy;
+    private LockedAccountIndex underTest;
+
+    @BeforeEach
+    void init() {
+        mockAccountRepository = mock(AccountRepository.class);
+        mockUpdateStrategy = mock(AccountUpdateStrategy.class);
+        when(mockUpdateStrategy.isDatabaseBacked()).thenReturn(true);
+        underTest = new LockedAccountIndex(mockAccountRepository, mockUpdateStrategy, new ShardRouter(new ShardingProperties()));
+    }
+
+    @Test
+    void shouldRebuildFromDatabase() {
+        //given:
+        underTest.set(7L, true);
+        when(mockAccountRepository.findLockedAccountIds()).thenReturn(List.of(1L, 64L, 70_000L));
+
+        //when:
+        underTest.rebuild();
+
+        //then:
+        Assertions.assertTrue(underTest.isLocked(1L));
+        Assertions.assertTrue(underTest.isLocked(64L));
+        Assertions.assertTrue(underTest.isLocked(70_000L));
+        Assertions.assertFalse(underTest.isLocked(7L));
+        Assertions.assertFalse(underTest.isLocked(2L));
+        Assertions.assertFalse(underTest.isLocked(5_000_000L));
+    }
+
+    @Test
+    void shouldFollowLockChangesAndClearOnRollback() {
+        //when:
+        underTest.onLockChanged(new AccountLockChangedEvent(3L, true));
+        underTest.onLockChanged(new AccountLockChangedEvent(4L, true));
+        underTest.onLockChanged(new AccountLockChangedEvent(4L, false));
+        underTest.onLockChanged(new AccountLockChangedEvent(5L, true));
+        underTest.onLockChangeRolledBack(new AccountLockChangedEvent(5L, true));
+
+        //then:
+        Assertions.assertTrue(underTest.isLocked(3L));
+        Assertions.assertFalse(underTest.isLocked(4L));
+        Assertions.assertFalse(underTest.isLocked(5L));
+        Assertions.assertFalse(underTest.isLocked(-1L));
+    }
+
+    @Test
+    void shouldStayEmptyWhenAccountsAreNotKeptInDatabase() {
+        //given:
+        when(mockUpdateStrategy.isDatabaseBacked()).thenReturn(false);
+        underTest = new LockedAccountIndex(mockAccountRepository, mockUpdateStrategy, new ShardRouter(new ShardingProperties()));
+
+        //when:
+        underTest.onLockChanged(new AccountLockChangedEvent(3L, true));
+
+        //then:
+        Assertions.assertFalse(underTest.isLocked(3L));
+    }
+}
@@ -0,0 +1,40 @@
+package pl.kurs.bank.account.model;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pl.kurs.bank.account.exception.AccountOperationException;
+
+import java.math.BigDecimal;
+
+class MinorUnitsTest {
+
+    @Test
+    void shouldConvertDecimalToMinorUnits() {
+        Assertions.assertEquals(100000L, MinorUnits.fromDecimal(new BigDecimal("1000")));
+        Assertions.assertEquals(1050L, MinorUnits.fromDecimal(new BigDecimal("10.50")));
+        Assertions.assertEquals(-1L, MinorUnits.fromDecimal(new BigDecimal("-0.01")));
+    }
+
+    @Test
+    void shouldRejectFractionOfMinorUnit() {
+        Assertions.assertThrows(AccountOperationException.class, () -> MinorUnits.fromDecimal(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void shouldRejectAmountOutOfRange() {
+        Assertions.assertThrows(AccountOperationException.class, () -> MinorUnits.fromDecimal(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void shouldWriteDecimalWithShortestScale() {
+        Assertions.assertEquals(new BigDecimal("1000"), MinorUnits.toDecimal(100000L));
+        Assertions.assertEquals(new BigDecimal("10.5"), MinorUnits.toDecimal(1050L));
+        Assertions.assertEquals(new BigDecimal("0.01"), MinorUnits.toDecimal(1L));
+    }
+
+    @Test
+    void shouldDetectOverflow() {
+        Assertions.assertThrows(AccountOperationException.class, () -> MinorUnits.add(Long.MAX_VALUE, 1L));
+        Assertions.assertThrows(AccountOperationException.class, () -> MinorUnits.subtract(Long.MIN_VALUE, 1L));
+    }
+}
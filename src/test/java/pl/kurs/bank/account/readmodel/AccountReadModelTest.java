@@ -0,0 +1,111 @@
+package pl.kurs.bank.account.readmodel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.shard.ShardingProperties;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+class AccountReadModelTest {
+    private AccountRepository mockAccountRepository;
+    private AccountReadModel underTest;
+
+    @BeforeEach
+    void init() {
+        mockAccountRepository = mock(AccountRepository.class);
+        underTest = new AccountReadModel(mockAccountRepository, mock(AccountUpdateStrategy.class, CALLS_REAL_METHODS),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new ReadModelProperties(),
+                new ShardRouter(new ShardingProperties()), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldServeViewsLoadedOnStartup() {
+        //given:
+        when(mockAccountRepository.streamViews(null, null)).thenReturn(Stream.of(view(1L, 100L), view(5_000L, 200L)));
+
+        //when:
+        underTest.start();
+        underTest.stop();
+
+        //then:
+        Assertions.assertEquals(100L, underTest.get(1L, AccountReadModelTest::unexpectedLoad).balance());
+        Assertions.assertEquals(200L, underTest.get(5_000L, AccountReadModelTest::unexpectedLoad).balance());
+    }
+
+    @Test
+    void shouldReadThroughAccountItDoesNotHoldOnce() {
+        //given:
+        AtomicInteger loads = new AtomicInteger();
+
+        //when:
+        underTest.get(7L, () -> view(7L, loads.incrementAndGet()));
+        AccountView view = underTest.get(7L, () -> view(7L, loads.incrementAndGet()));
+
+        //then:
+        Assertions.assertEquals(1L, view.balance());
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldProjectCommittedChangesAndAdvanceMarker() {
+        //given:
+        underTest.get(7L, () -> view(7L, 100L));
+        when(mockAccountRepository.findViewsByIds(List.of(7L))).thenReturn(List.of(view(7L, 150L)));
+
+        //when:
+        underTest.onAccountChanged(new AccountChangedEvent(7L));
+        underTest.onAccountChanged(new AccountChangedEvent(7L));
+        ReadModelMarker before = underTest.marker();
+        underTest.project();
+
+        //then:
+        Assertions.assertEquals(new ReadModelMarker(0, 2, before.stalenessMillis()), before);
+        Assertions.assertEquals(new ReadModelMarker(2, 0, 0), underTest.marker());
+        Assertions.assertEquals(150L, underTest.get(7L, AccountReadModelTest::unexpectedLoad).balance());
+        verify(mockAccountRepository, times(1)).findViewsByIds(List.of(7L));
+    }
+
+    @Test
+    void shouldKeepChangesMarkedWhenProjectionFails() {
+        //given:
+        underTest.get(7L, () -> view(7L, 100L));
+        when(mockAccountRepository.findViewsByIds(List.of(7L)))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(List.of(view(7L, 150L)));
+        underTest.onAccountChanged(new AccountChangedEvent(7L));
+
+        //when:
+        Assertions.assertThrows(QueryTimeoutException.class, () -> underTest.project());
+        AccountView stale = underTest.get(7L, AccountReadModelTest::unexpectedLoad);
+        underTest.project();
+
+        //then:
+        Assertions.assertEquals(100L, stale.balance());
+        Assertions.assertEquals(150L, underTest.get(7L, AccountReadModelTest::unexpectedLoad).balance());
+        Assertions.assertEquals(0, underTest.marker().pending());
+    }
+
+    private static AccountView view(long id, long balance) {
+        return new AccountView(id, balance, LocalDateTime.of(2026, 1, 1, 0, 0), Account.Type.REGULAR, false);
+    }
+
+    private static AccountView unexpectedLoad() {
+        throw new AssertionError("The view should come from the read model");
+    }
+}
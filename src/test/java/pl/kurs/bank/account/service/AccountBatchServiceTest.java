@@ -0,0 +1,113 @@
+package pl.kurs.bank.account.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.shard.ShardingProperties;
+import pl.kurs.bank.common.dto.BatchResultDto;
+import pl.kurs.bank.common.metrics.AccountMetrics;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AccountBatchServiceTest {
+    private AccountRepository mockAccountRepository;
+    private PlatformTransactionManager mockTransactionManager;
+    private AccountBatchService underTest;
+
+    @BeforeEach
+    void init() {
+        mockAccountRepository = mock(AccountRepository.class);
+        mockTransactionManager = mock(PlatformTransactionManager.class);
+        when(mockTransactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        AccountBatchProperties properties = new AccountBatchProperties();
+        properties.setGroupSize(1);
+        underTest = new AccountBatchService(mockAccountRepository, mock(AccountService.class),
+                mock(AccountUpdateStrategy.class, CALLS_REAL_METHODS), new TransactionTemplate(mockTransactionManager),
+                mock(ApplicationEventPublisher.class), new AccountMetrics(new SimpleMeterRegistry()), properties,
+                new ShardRouter(new ShardingProperties()), Optional.empty(), Optional.empty());
+    }
+
+    @Test
+    void shouldReportCommittedGroupsWhenLaterGroupFailsAtCommit() {
+        //given:
+        when(mockAccountRepository.findAllByIdWithPessimisticLock(any()))
+                .thenReturn(List.of(account(1L)))
+                .thenReturn(List.of(account(2L)));
+        doNothing()
+                .doThrow(new TransactionSystemException("commit failed"))
+                .when(mockTransactionManager).commit(any());
+        BatchCashCommand command = new BatchCashCommand();
+        command.setCommands(List.of(deposit(1L), deposit(2L)));
+
+        //when:
+        List<BatchResultDto> results = underTest.execute(command);
+
+        //then:
+        Assertions.assertEquals(List.of(new BatchResultDto(0, 1L, AccountBatchService.OK),
+                new BatchResultDto(1, 2L, AccountBatchService.FAILED)), results);
+    }
+
+    @Test
+    void shouldApplyPendingDepositsOfDebitedAccountsBeforeGroup() {
+        //given:
+        WriteBehindDepositQueue mockDepositQueue = mock(WriteBehindDepositQueue.class);
+        AccountBatchService underTest = new AccountBatchService(mockAccountRepository, mock(AccountService.class),
+                mock(AccountUpdateStrategy.class, CALLS_REAL_METHODS), new TransactionTemplate(mockTransactionManager),
+                mock(ApplicationEventPublisher.class), new AccountMetrics(new SimpleMeterRegistry()),
+                new AccountBatchProperties(), new ShardRouter(new ShardingProperties()), Optional.empty(),
+                Optional.of(mockDepositQueue));
+        when(mockAccountRepository.findAllByIdWithPessimisticLock(any())).thenReturn(List.of(account(1L), account(2L)));
+        BatchCashCommand command = new BatchCashCommand();
+        command.setCommands(List.of(withdraw(1L), deposit(2L), withdraw(1L)));
+
+        //when:
+        List<BatchResultDto> results = underTest.execute(command);
+
+        //then:
+        Assertions.assertTrue(results.stream().allMatch(result -> AccountBatchService.OK.equals(result.status())));
+        InOrder inOrder = inOrder(mockDepositQueue, mockTransactionManager);
+        inOrder.verify(mockDepositQueue).applyPending(1L);
+        inOrder.verify(mockTransactionManager).getTransaction(any());
+        verifyNoMoreInteractions(mockDepositQueue);
+    }
+
+    private static Account account(long id) {
+        Account account = new Account();
+        account.setId(id);
+        account.setType(Account.Type.REGULAR);
+        return account;
+    }
+
+    private static BatchCashCommand.Entry deposit(long accountId) {
+        return entry(BatchCashCommand.Operation.DEPOSIT, accountId);
+    }
+
+    private static BatchCashCommand.Entry withdraw(long accountId) {
+        return entry(BatchCashCommand.Operation.WITHDRAW, accountId);
+    }
+
+    private static BatchCashCommand.Entry entry(BatchCashCommand.Operation operation, long accountId) {
+        BatchCashCommand.Entry entry = new BatchCashCommand.Entry();
+        entry.setOperation(operation);
+        entry.setAccountId(accountId);
+        entry.setAmount(BigDecimal.TEN);
+        return entry;
+    }
+}
@@ -0,0 +1,83 @@
+package pl.kurs.bank.account.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.shard.ShardingProperties;
+import pl.kurs.bank.common.dto.AccountPageDto;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AccountQueryServiceTest {
+
+    private AccountRepository mockAccountRepository;
+    private AccountUpdateStrategy mockUpdateStrategy;
+    private AccountQueryService underTest;
+
+    @BeforeEach
+    void setUp() {
+        mockAccountRepository = mock(AccountRepository.class);
+        mockUpdateStrategy = mock(AccountUpdateStrategy.class);
+        when(mockUpdateStrategy.isDatabaseBacked()).thenReturn(false);
+        when(mockUpdateStrategy.findLoaded(anyLong())).thenReturn(Optional.empty());
+        underTest = new AccountQueryService(mockAccountRepository, mockUpdateStrategy, new ObjectMapper(),
+                new ShardRouter(new ShardingProperties()), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void shouldFilterOnCurrentLockStateWhenRowsAreStale() {
+        //given:
+        Account locked = new Account();
+        locked.setId(2L);
+        locked.setType(Account.Type.REGULAR);
+        locked.setBalanceMinor(700L);
+        locked.setLocked(true);
+        when(mockUpdateStrategy.findLoaded(2L)).thenReturn(Optional.of(locked));
+        when(mockAccountRepository.findViewsAfter(0L, null, null, PageRequest.ofSize(2)))
+                .thenReturn(List.of(view(1L, true), view(2L, false)));
+
+        //when:
+        AccountPageDto page = underTest.list(0L, 2, null, true);
+
+        //then:
+        Assertions.assertEquals(List.of(view(1L, true), new AccountView(2L, 700L, null, Account.Type.REGULAR, true)),
+                page.accounts());
+        Assertions.assertEquals(2L, page.nextAfterId());
+        verify(mockUpdateStrategy, never()).find(anyLong());
+    }
+
+    @Test
+    void shouldReadOnUntilPageIsFull() {
+        //given:
+        Account unlocked = new Account();
+        unlocked.setId(1L);
+        unlocked.setType(Account.Type.REGULAR);
+        when(mockUpdateStrategy.findLoaded(1L)).thenReturn(Optional.of(unlocked));
+        when(mockAccountRepository.findViewsAfter(0L, null, null, PageRequest.ofSize(1)))
+                .thenReturn(List.of(view(1L, true)));
+        when(mockAccountRepository.findViewsAfter(1L, null, null, PageRequest.ofSize(1)))
+                .thenReturn(List.of());
+
+        //when:
+        AccountPageDto page = underTest.list(0L, 1, null, true);
+
+        //then:
+        Assertions.assertEquals(List.of(), page.accounts());
+        Assertions.assertNull(page.nextAfterId());
+    }
+
+    private static AccountView view(long id, boolean locked) {
+        return new AccountView(id, 100L, null, Account.Type.REGULAR, locked);
+    }
+}
@@ -1,32 +1,58 @@
 package pl.kurs.bank.account.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.cache.AccountCacheProperties;
+import pl.kurs.bank.account.cache.AccountReadCache;
+import pl.kurs.bank.account.deposit.WriteBehindDepositQueue;
 import pl.kurs.bank.account.exception.AccountLockedException;
 import pl.kurs.bank.account.exception.AccountNotFoundException;
 import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.lock.LockedAccountIndex;
 import pl.kurs.bank.account.model.Account;
 import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
 import pl.kurs.bank.account.model.command.WithdrawCashCommand;
+import pl.kurs.bank.account.model.event.AccountLockChangedEvent;
 import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.shard.ShardingProperties;
+import pl.kurs.bank.common.metrics.AccountMetrics;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class AccountServiceTest {
     private AccountRepository mockAccountRepository;
+    private LockedAccountIndex lockedAccountIndex;
     private AccountService underTest;
 
     @BeforeEach
     void init() {
         mockAccountRepository = mock(AccountRepository.class);
-        underTest = new AccountService(mockAccountRepository);
+        AccountMetrics accountMetrics = new AccountMetrics(new SimpleMeterRegistry());
+        PessimisticLockingStrategy updateStrategy = new PessimisticLockingStrategy(mockAccountRepository, accountMetrics);
+        ShardRouter shardRouter = new ShardRouter(new ShardingProperties());
+        lockedAccountIndex = new LockedAccountIndex(mockAccountRepository, updateStrategy, shardRouter);
+        underTest = new AccountService(mockAccountRepository, updateStrategy,
+                mock(StripedBalanceService.class), new AccountReadCache(new AccountCacheProperties(), new SimpleMeterRegistry()),
+                mock(ApplicationEventPublisher.class), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                accountMetrics, lockedAccountIndex, shardRouter, Optional.empty(), Optional.empty(), Optional.empty());
     }
 
     @Test
@@ -50,6 +76,37 @@ class AccountServiceTest {
 
     }
 
+    @Test
+    void shouldApplyPendingDepositsBeforeWithdrawing() {
+        //given:
+        AccountMetrics accountMetrics = new AccountMetrics(new SimpleMeterRegistry());
+        PessimisticLockingStrategy updateStrategy = new PessimisticLockingStrategy(mockAccountRepository, accountMetrics);
+        ShardRouter shardRouter = new ShardRouter(new ShardingProperties());
+        WriteBehindDepositQueue depositQueue = mock(WriteBehindDepositQueue.class);
+        AccountService withQueue = new AccountService(mockAccountRepository, updateStrategy,
+                mock(StripedBalanceService.class), new AccountReadCache(new AccountCacheProperties(), new SimpleMeterRegistry()),
+                mock(ApplicationEventPublisher.class), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                accountMetrics, lockedAccountIndex, shardRouter, Optional.of(depositQueue), Optional.empty(), Optional.empty());
+
+        WithdrawCashCommand withdrawCashCommand = new WithdrawCashCommand();
+        withdrawCashCommand.setAccountId(100L);
+        withdrawCashCommand.setAmount(new BigDecimal("1000"));
+
+        Account testAccount = new Account();
+        testAccount.setId(100L);
+        testAccount.setBalance(new BigDecimal("2000"));
+
+        when(mockAccountRepository.findByIdWithPessimisticLock(100L)).thenReturn(Optional.of(testAccount));
+
+        //when:
+        withQueue.withdraw(withdrawCashCommand);
+
+        //then:
+        InOrder order = inOrder(depositQueue, mockAccountRepository);
+        order.verify(depositQueue).applyPending(100L);
+        order.verify(mockAccountRepository).findByIdWithPessimisticLock(100L);
+    }
+
     @Test
     void shouldNotWithdrawMoney_limitExceed() {
         //given:
@@ -153,18 +210,38 @@ class AccountServiceTest {
         verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(100L);
     }
 
+    @Test
+    void shouldRejectIndexedLockedAccountWithoutTouchingDatabase() {
+        //given:
+        lockedAccountIndex.onLockChanged(new AccountLockChangedEvent(100L, true));
+        WithdrawCashCommand withdrawCashCommand = new WithdrawCashCommand();
+        withdrawCashCommand.setAccountId(100L);
+        withdrawCashCommand.setAmount(new BigDecimal("1000"));
+        DepositCashCommand depositCashCommand = new DepositCashCommand();
+        depositCashCommand.setAccountId(100L);
+        depositCashCommand.setAmount(new BigDecimal("1000"));
+
+        //when:
+        Assertions.assertThrows(AccountLockedException.class, () -> underTest.withdraw(withdrawCashCommand));
+        Assertions.assertThrows(AccountLockedException.class, () -> underTest.deposit(depositCashCommand));
+        Assertions.assertThrows(AccountLockedException.class, () -> underTest.transfer(transfer(1L, 100L, "40")));
+
+        //then:
+        verifyNoInteractions(mockAccountRepository);
+    }
+
     @Test
     void shouldLockAccount_whenAccountExists() {
         // given:
         long accountId = 1L;
         Account mockAccount = mock(Account.class);
-        when(mockAccountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(mockAccountRepository.findByIdWithPessimisticLock(accountId)).thenReturn(Optional.of(mockAccount));
 
         // when:
         underTest.lock(accountId);
 
         // then:
-        verify(mockAccountRepository, times(1)).findById(accountId);
+        verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(accountId);
         verify(mockAccount, times(1)).lock();
     }
 
@@ -172,11 +249,11 @@ class AccountServiceTest {
     void shouldThrowAccountNotFoundException_whenLockingNonExistentAccount() {
         // given:
         long accountId = 1L;
-        when(mockAccountRepository.findById(accountId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findByIdWithPessimisticLock(accountId)).thenReturn(Optional.empty());
 
         // when & then:
         Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.lock(accountId));
-        verify(mockAccountRepository, times(1)).findById(accountId);
+        verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(accountId);
     }
 
     @Test
@@ -184,13 +261,13 @@ class AccountServiceTest {
         // given:
         long accountId = 1L;
         Account mockAccount = mock(Account.class);
-        when(mockAccountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(mockAccountRepository.findByIdWithPessimisticLock(accountId)).thenReturn(Optional.of(mockAccount));
 
         // when:
         underTest.unlock(accountId);
 
         // then:
-        verify(mockAccountRepository, times(1)).findById(accountId);
+        verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(accountId);
         verify(mockAccount, times(1)).unlock();
     }
 
@@ -198,22 +275,22 @@ class AccountServiceTest {
     void shouldThrowAccountNotFoundException_whenUnlockingNonExistentAccount() {
         // given:
         long accountId = 1L;
-        when(mockAccountRepository.findById(accountId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findByIdWithPessimisticLock(accountId)).thenReturn(Optional.empty());
 
         // when & then:
         Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.unlock(accountId));
-        verify(mockAccountRepository, times(1)).findById(accountId);
+        verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(accountId);
     }
 
     @Test
     void shouldThrowAccountNotFoundException_whenAccountDoesNotExist() {
         //given:
         long nonExistentAccountId = 5000L;
-        when(mockAccountRepository.findById(nonExistentAccountId)).thenReturn(Optional.empty());
+        when(mockAccountRepository.findViewById(nonExistentAccountId)).thenReturn(Optional.empty());
 
         //when & then:
         Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.getAccount(nonExistentAccountId));
-        verify(mockAccountRepository, times(1)).findById(nonExistentAccountId);
+        verify(mockAccountRepository, times(1)).findViewById(nonExistentAccountId);
     }
 
     @Test
@@ -235,5 +312,71 @@ class AccountServiceTest {
         verify(mockAccountRepository, times(1)).findByIdWithPessimisticLock(100L);
     }
 
+    @Test
+    void shouldTransferMoney() {
+        //given:
+        Account from = new Account();
+        from.setId(1L);
+        from.setBalance(new BigDecimal("100"));
+        Account to = new Account();
+        to.setId(2L);
+        to.setBalance(new BigDecimal("10"));
+        when(mockAccountRepository.findAllByIdWithPessimisticLock(new TreeSet<>(List.of(1L, 2L)))).thenReturn(List.of(from, to));
+
+        //when:
+        underTest.transfer(transfer(1L, 2L, "40"));
+
+        //then:
+        Assertions.assertEquals(new BigDecimal("60"), from.getBalance());
+        Assertions.assertEquals(new BigDecimal("50"), to.getBalance());
+    }
+
+    @Test
+    void shouldNotTransferMoney_insufficientFunds() {
+        //given:
+        Account from = new Account();
+        from.setId(1L);
+        from.setBalance(new BigDecimal("10"));
+        Account to = new Account();
+        to.setId(2L);
+        to.setBalance(BigDecimal.ZERO);
+        when(mockAccountRepository.findAllByIdWithPessimisticLock(new TreeSet<>(List.of(1L, 2L)))).thenReturn(List.of(from, to));
+
+        //when:
+        Assertions.assertThrows(AccountOperationException.class, () -> underTest.transfer(transfer(1L, 2L, "40")));
 
-}
\ No newline at end of file
+        //then:
+        Assertions.assertEquals(new BigDecimal("10"), from.getBalance());
+        Assertions.assertEquals(BigDecimal.ZERO, to.getBalance());
+    }
+
+    @Test
+    void shouldThrowAccountNotFoundException_whenTransferTargetDoesNotExist() {
+        //given:
+        Account from = new Account();
+        from.setId(1L);
+        from.setBalance(new BigDecimal("100"));
+        when(mockAccountRepository.findAllByIdWithPessimisticLock(new TreeSet<>(List.of(1L, 2L)))).thenReturn(List.of(from));
+
+        //when & then:
+        Assertions.assertThrows(AccountNotFoundException.class, () -> underTest.transfer(transfer(1L, 2L, "40")));
+    }
+
+    @Test
+    void shouldThrowAccountOperationException_whenTransferringToSameAccount() {
+        //when:
+        Exception exception = Assertions.assertThrows(AccountOperationException.class,
+                () -> underTest.transfer(transfer(1L, 1L, "40")));
+
+        //then:
+        Assertions.assertEquals("Unable to transfer to the same account.", exception.getMessage());
+    }
+
+    private static TransferCashCommand transfer(long fromAccountId, long toAccountId, String amount) {
+        TransferCashCommand command = new TransferCashCommand();
+        command.setFromAccountId(fromAccountId);
+        command.setToAccountId(toAccountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+}
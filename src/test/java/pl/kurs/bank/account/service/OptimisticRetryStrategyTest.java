@@ -0,0 +1,70 @@
+package pl.kurs.bank.account.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.command.DepositCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-optimistic",
+        "bank.account.write-mode=optimistic",
+        "bank.account.optimistic.max-attempts=100"
+})
+@ActiveProfiles("it")
+class OptimisticRetryStrategyTest {
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountUpdateStrategy updateStrategy;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldRetryConflictingUpdatesUntilAllApplied() throws Exception {
+        //given:
+        Assertions.assertInstanceOf(OptimisticRetryStrategy.class, updateStrategy);
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(BigDecimal.ZERO);
+        Account savedAccount = accountRepository.saveAndFlush(account);
+
+        DepositCashCommand command = new DepositCashCommand();
+        command.setAccountId(savedAccount.getId());
+        command.setAmount(BigDecimal.ONE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when:
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> accountService.deposit(command)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then:
+        Account accountFromDb = accountRepository.findById(savedAccount.getId()).get();
+        Assertions.assertEquals(0, new BigDecimal("200").compareTo(accountFromDb.getBalance()));
+        Assertions.assertEquals(200, accountFromDb.getVersion());
+        double attempts = meterRegistry.counter("bank.account.optimistic.attempts").count();
+        double conflicts = meterRegistry.counter("bank.account.optimistic.conflicts").count();
+        Assertions.assertEquals(200.0, attempts - conflicts);
+    }
+}
@@ -0,0 +1,86 @@
+package pl.kurs.bank.account.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.exception.AccountLockedException;
+import pl.kurs.bank.account.exception.AccountOperationException;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountSlot;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.repository.AccountSlotRepository;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+@SpringBootTest(classes = Main.class)
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class StripedBalanceServiceTest {
+    @Autowired
+    private StripedBalanceService stripedBalanceService;
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountSlotRepository accountSlotRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void shouldRefuseSlotDepositWhenLockCommitsAfterAccountWasRead() {
+        //given:
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(new BigDecimal("100"));
+        long id = accountRepository.saveAndFlush(account).getId();
+        accountService.stripe(id, 4);
+
+        //when:
+        Assertions.assertThrows(AccountLockedException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            // the deposit joins this transaction and sees the account as read here, still unlocked
+            Assertions.assertFalse(accountRepository.findById(id).orElseThrow().isLocked());
+            CompletableFuture.runAsync(() -> accountService.lock(id)).join();
+            stripedBalanceService.depositToSlot(id, 1_000L);
+        }));
+
+        //then:
+        Assertions.assertEquals(0L, accountSlotRepository.sumBalance(id));
+        Assertions.assertTrue(accountRepository.findById(id).orElseThrow().isLocked());
+    }
+
+    @Test
+    void shouldRefuseSlotDepositThatWouldOverflowSlot() {
+        //given:
+        Account account = new Account();
+        account.setType(Account.Type.REGULAR);
+        account.setBalance(BigDecimal.ZERO);
+        long id = accountRepository.saveAndFlush(account).getId();
+        accountService.stripe(id, 1);
+        AccountSlot slot = slot(id);
+        slot.setBalanceMinor(Long.MAX_VALUE - 10L);
+        accountSlotRepository.saveAndFlush(slot);
+
+        //when:
+        Assertions.assertThrows(AccountOperationException.class, () -> stripedBalanceService.depositToSlot(id, 1_000L));
+
+        //then:
+        Assertions.assertEquals(Long.MAX_VALUE - 10L, slot(id).getBalanceMinor());
+        // the context is shared, other tests sum every balance
+        accountSlotRepository.delete(slot(id));
+        accountRepository.deleteById(id);
+    }
+
+    private AccountSlot slot(long accountId) {
+        return accountSlotRepository.findAll().stream()
+                .filter(slot -> slot.getAccountId() == accountId)
+                .findFirst()
+                .orElseThrow();
+    }
+}
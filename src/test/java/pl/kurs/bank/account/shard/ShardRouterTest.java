@@ -0,0 +1,152 @@
+package pl.kurs.bank.account.shard;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import pl.kurs.bank.Main;
+import pl.kurs.bank.account.model.command.BatchCashCommand;
+import pl.kurs.bank.account.model.command.TransferCashCommand;
+import pl.kurs.bank.account.repository.AccountRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = Main.class, properties = {
+        "bank.sharding.enabled=true",
+        "bank.sharding.range-size=1000000",
+        "bank.sharding.shards[0].url=jdbc:h2:mem:bank-db-zywko-shard-0;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "bank.sharding.shards[1].url=jdbc:h2:mem:bank-db-zywko-shard-1;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("it")
+@AutoConfigureMockMvc
+class ShardRouterTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void shouldCreateAccountsOnEveryShardWithIdsOfItsRange() throws Exception {
+        //when:
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(createAccount("10"));
+        }
+
+        //then:
+        Assertions.assertEquals(2, ids.stream().filter(id -> id <= 1_000_000).count());
+        Assertions.assertEquals(2, ids.stream().filter(id -> id > 1_000_000 && id <= 2_000_000).count());
+        for (long id : ids) {
+            int shard = shardRouter.shardOf(id);
+            Assertions.assertTrue(shardRouter.onShard(shard, () -> accountRepository.existsById(id)));
+            Assertions.assertFalse(shardRouter.onShard(1 - shard, () -> accountRepository.existsById(id)));
+        }
+    }
+
+    @Test
+    void shouldOperateOnAccountsOfEveryShard() throws Exception {
+        //given:
+        long first = createAccount("100");
+        long second = createAccount("100");
+        long sameShardAsFirst = createAccount("100");
+        Assertions.assertNotEquals(shardRouter.shardOf(first), shardRouter.shardOf(second));
+        BatchCashCommand batch = new BatchCashCommand();
+        batch.setCommands(List.of(
+                batchEntry(BatchCashCommand.Operation.WITHDRAW, first, "30"),
+                batchEntry(BatchCashCommand.Operation.DEPOSIT, second, "30")));
+
+        //when:
+        mockMvc.perform(post("/api/v1/accounts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[1].status").value("OK"));
+        mockMvc.perform(post("/api/v1/accounts/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transfer(first, sameShardAsFirst, "20"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/accounts/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transfer(first, second, "20"))))
+                .andExpect(status().is4xxClientError());
+        mockMvc.perform(post("/api/v1/accounts/" + second + "/lock"))
+                .andExpect(status().isOk());
+
+        //then:
+        mockMvc.perform(get("/api/v1/accounts/" + first))
+                .andExpect(jsonPath("$.balance").value(50));
+        mockMvc.perform(get("/api/v1/accounts/" + second))
+                .andExpect(jsonPath("$.balance").value(130))
+                .andExpect(jsonPath("$.locked").value(true));
+        mockMvc.perform(get("/api/v1/accounts/" + sameShardAsFirst))
+                .andExpect(jsonPath("$.balance").value(120));
+    }
+
+    @Test
+    void shouldListAccountsOfAllShardsInIdOrder() throws Exception {
+        //given:
+        List<Long> created = List.of(createAccount("1"), createAccount("1"), createAccount("1"));
+
+        //when:
+        List<Long> listed = new ArrayList<>();
+        String afterId = "0";
+        while (afterId != null) {
+            MvcResult result = mockMvc.perform(get("/api/v1/accounts").param("afterId", afterId).param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            page.get("accounts").forEach(account -> listed.add(account.get("id").asLong()));
+            afterId = page.get("nextAfterId").isNull() ? null : page.get("nextAfterId").asText();
+        }
+
+        //then:
+        Assertions.assertTrue(listed.containsAll(created));
+        Assertions.assertEquals(listed.stream().sorted().toList(), listed);
+        Assertions.assertEquals(accountRepository.count() + shardRouter.onShard(1, accountRepository::count),
+                listed.size());
+    }
+
+    private long createAccount(String balance) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"REGULAR\",\"balance\":" + balance + "}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private static BatchCashCommand.Entry batchEntry(BatchCashCommand.Operation operation, long accountId, String amount) {
+        BatchCashCommand.Entry entry = new BatchCashCommand.Entry();
+        entry.setOperation(operation);
+        entry.setAccountId(accountId);
+        entry.setAmount(new BigDecimal(amount));
+        return entry;
+    }
+
+    private static TransferCashCommand transfer(long fromAccountId, long toAccountId, String amount) {
+        TransferCashCommand command = new TransferCashCommand();
+        command.setFromAccountId(fromAccountId);
+        command.setToAccountId(toAccountId);
+        command.setAmount(new BigDecimal(amount));
+        return command;
+    }
+}
@@ -0,0 +1,117 @@
+package pl.kurs.bank.account.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.kurs.bank.account.model.Account;
+import pl.kurs.bank.account.model.AccountTotals;
+import pl.kurs.bank.account.model.AccountView;
+import pl.kurs.bank.account.model.event.AccountTotalsChangedEvent;
+import pl.kurs.bank.account.repository.AccountRepository;
+import pl.kurs.bank.account.shard.ShardRouter;
+import pl.kurs.bank.account.service.AccountUpdateStrategy;
+import pl.kurs.bank.account.shard.ShardingProperties;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+class AccountStatisticsTest {
+    private AccountRepository mockAccountRepository;
+    private AccountStatistics underTest;
+
+    @BeforeEach
+    void init() {
+        mockAccountRepository = mock(AccountRepository.class);
+        underTest = new AccountStatistics(mockAccountRepository, mock(AccountUpdateStrategy.class, CALLS_REAL_METHODS),
+                Optional.empty(), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new AccountStatsProperties(), new ShardRouter(new ShardingProperties()));
+    }
+
+    @Test
+    void shouldApplyChangesIncrementally() {
+        //when:
+        underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.SAVINGS, false, 1, 1_000L));
+        underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.SAVINGS, false, 0, -300L));
+        underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.SAVINGS, false, -1, -700L));
+        underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.SAVINGS, true, 1, 700L));
+
+        //then:
+        Assertions.assertEquals(new AccountTotals(Account.Type.SAVINGS, false, 0, 0), totals(Account.Type.SAVINGS, false));
+        Assertions.assertEquals(new AccountTotals(Account.Type.SAVINGS, true, 1, 700L), totals(Account.Type.SAVINGS, true));
+        Assertions.assertNull(underTest.getStats().reconciledAt());
+    }
+
+    @Test
+    void shouldCorrectDriftOnReconciliation() {
+        //given:
+        underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.REGULAR, false, 1, 500L));
+        when(mockAccountRepository.sumByTypeAndLocked()).thenReturn(List.of(
+                new AccountTotals(Account.Type.REGULAR, false, 2, 800L),
+                new AccountTotals(Account.Type.SAVINGS, true, 1, 50L)));
+
+        //when:
+        underTest.reconcile();
+
+        //then:
+        Assertions.assertEquals(new AccountTotals(Account.Type.REGULAR, false, 2, 800L), totals(Account.Type.REGULAR, false));
+        Assertions.assertEquals(new AccountTotals(Account.Type.SAVINGS, true, 1, 50L), totals(Account.Type.SAVINGS, true));
+        Assertions.assertNotNull(underTest.getStats().reconciledAt());
+    }
+
+    @Test
+    void shouldLeaveCellChangedDuringReconciliation() {
+        //given:
+        when(mockAccountRepository.sumByTypeAndLocked()).thenAnswer(invocation -> {
+            underTest.onTotalsChanged(new AccountTotalsChangedEvent(Account.Type.REGULAR, false, 0, 10L));
+            return List.of(new AccountTotals(Account.Type.REGULAR, false, 1, 500L));
+        });
+
+        //when:
+        underTest.reconcile();
+
+        //then:
+        Assertions.assertEquals(new AccountTotals(Account.Type.REGULAR, false, 0, 10L), totals(Account.Type.REGULAR, false));
+        Assertions.assertNull(underTest.getStats().reconciledAt());
+    }
+
+    @Test
+    void shouldReconcileInMemoryBalancesEveryRoundWithoutLoadingAccounts() {
+        //given:
+        AccountUpdateStrategy mockUpdateStrategy = mock(AccountUpdateStrategy.class);
+        when(mockUpdateStrategy.isDatabaseBacked()).thenReturn(false);
+        Account held = new Account();
+        held.setType(Account.Type.REGULAR);
+        held.setBalance(new BigDecimal("9"));
+        when(mockUpdateStrategy.findLoaded(1L)).thenReturn(Optional.of(held));
+        when(mockUpdateStrategy.findLoaded(2L)).thenReturn(Optional.empty());
+        when(mockAccountRepository.streamViews(null, null)).thenAnswer(invocation -> Stream.of(
+                new AccountView(1L, 100L, null, Account.Type.REGULAR, false),
+                new AccountView(2L, 50L, null, Account.Type.REGULAR, false)));
+        underTest = new AccountStatistics(mockAccountRepository, mockUpdateStrategy,
+                Optional.empty(), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new AccountStatsProperties(), new ShardRouter(new ShardingProperties()));
+        underTest.reconcile();
+        // a change the statistics never heard of
+        held.setBalance(new BigDecimal("10"));
+
+        //when:
+        underTest.reconcile();
+
+        //then:
+        Assertions.assertEquals(new AccountTotals(Account.Type.REGULAR, false, 2, 1_050L), totals(Account.Type.REGULAR, false));
+        verify(mockUpdateStrategy, never()).find(anyLong());
+    }
+
+    private AccountTotals totals(Account.Type type, boolean locked) {
+        return underTest.getStats().totals().stream()
+                .filter(totals -> totals.type() == type && totals.locked() == locked)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,72 @@
+package pl.kurs.bank.common.execution;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+class GatedDataSourceTest {
+
+    private DataSource mockDataSource;
+    private Connection mockConnection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mockDataSource = mock(DataSource.class);
+        mockConnection = mock(Connection.class);
+        when(mockDataSource.getConnection()).thenReturn(mockConnection);
+    }
+
+    @Test
+    void shouldRefuseConnectionWhenAllPermitsAreTaken() throws Exception {
+        //given:
+        GatedDataSource underTest = new GatedDataSource(mockDataSource, 1, Duration.ofMillis(10));
+        Connection connection = underTest.getConnection();
+
+        //when:
+        DatabaseBusyException exception = Assertions.assertThrows(DatabaseBusyException.class, underTest::getConnection);
+
+        //then:
+        Assertions.assertEquals(Duration.ofMillis(10), exception.getRetryAfter());
+        verify(mockDataSource, times(1)).getConnection();
+        connection.close();
+        Assertions.assertEquals(1, underTest.availablePermits());
+    }
+
+    @Test
+    void shouldHoldPermitUntilConnectionIsClosed() throws Exception {
+        //given:
+        GatedDataSource underTest = new GatedDataSource(mockDataSource, 2, Duration.ofMillis(10));
+
+        //when:
+        Connection connection = underTest.getConnection();
+        connection.setAutoCommit(false);
+
+        //then:
+        Assertions.assertEquals(1, underTest.availablePermits());
+        verify(mockConnection).setAutoCommit(false);
+        connection.close();
+        connection.close();
+        Assertions.assertEquals(2, underTest.availablePermits());
+        verify(mockConnection, times(1)).close();
+    }
+
+    @Test
+    void shouldReleasePermitWhenConnectionCannotBeObtained() throws Exception {
+        //given:
+        when(mockDataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        GatedDataSource underTest = new GatedDataSource(mockDataSource, 1, Duration.ofMillis(10));
+
+        //when:
+        Assertions.assertThrows(SQLException.class, underTest::getConnection);
+
+        //then:
+        Assertions.assertEquals(1, underTest.availablePermits());
+    }
+}
@@ -0,0 +1,45 @@
+package pl.kurs.bank.common.execution;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import pl.kurs.bank.account.shard.ShardingProperties;
+
+class VirtualThreadConfigurationTest {
+
+    @Test
+    void shouldSizeGateToConnectionPool() {
+        //given:
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "7");
+
+        //when:
+        int poolSize = VirtualThreadConfiguration.poolSize(new ShardingProperties(), environment);
+
+        //then:
+        Assertions.assertEquals(7, poolSize);
+    }
+
+    @Test
+    void shouldSizeGateToAllShardPoolsWhenSharded() {
+        //given:
+        ShardingProperties sharding = new ShardingProperties();
+        sharding.setEnabled(true);
+        sharding.getShards().add(shard(4));
+        sharding.getShards().add(shard(6));
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "7");
+
+        //when:
+        int poolSize = VirtualThreadConfiguration.poolSize(sharding, environment);
+
+        //then:
+        Assertions.assertEquals(10, poolSize);
+    }
+
+    private static ShardingProperties.Shard shard(int maximumPoolSize) {
+        ShardingProperties.Shard shard = new ShardingProperties.Shard();
+        shard.setMaximumPoolSize(maximumPoolSize);
+        return shard;
+    }
+}
@@ -0,0 +1,130 @@
+package pl.kurs.bank.common.log;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class SegmentedLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReplayRecordsAboveSequenceAcrossSegments() throws Exception {
+        //given:
+        TestLog underTest = open(0, new ArrayList<>());
+        underTest.append(10L);
+        underTest.append(20L);
+        underTest.rotate();
+        underTest.append(30L);
+        underTest.close();
+
+        //when:
+        List<Long> replayed = new ArrayList<>();
+        TestLog reopened = open(1, replayed);
+
+        //then:
+        Assertions.assertEquals(List.of(20L, 30L), replayed);
+        Assertions.assertEquals(3L, reopened.lastSequence());
+        Assertions.assertEquals(4L, reopened.append(40L));
+        reopened.close();
+    }
+
+    @Test
+    void shouldNotReadSegmentsCoveredBySequence() throws Exception {
+        //given:
+        TestLog underTest = open(0, new ArrayList<>());
+        underTest.append(10L);
+        underTest.append(20L);
+        underTest.rotate();
+        underTest.append(30L);
+        underTest.close();
+
+        //when:
+        List<Long> replayed = new ArrayList<>();
+        open(2, replayed).close();
+
+        //then:
+        Assertions.assertEquals(List.of(30L), replayed);
+        Assertions.assertEquals(3, underTest.segments().size());
+    }
+
+    @Test
+    void shouldFailForGoodAndDropUnsyncedRecordsWhenForceFails() throws Exception {
+        //given:
+        TestLog underTest = open(0, new ArrayList<>());
+        underTest.sync(underTest.append(10L));
+        long unsynced = underTest.append(20L);
+        underTest.diskFails = true;
+
+        //when:
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.sync(unsynced));
+
+        //then:
+        underTest.sync(1L);
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.append(30L));
+        Assertions.assertThrows(IllegalStateException.class, () -> underTest.sync(unsynced));
+        underTest.close();
+
+        List<Long> replayed = new ArrayList<>();
+        open(0, replayed).close();
+        Assertions.assertEquals(List.of(10L), replayed);
+    }
+
+    private TestLog open(long afterSequence, List<Long> replayed) {
+        TestLog log = new TestLog(directory);
+        log.open(afterSequence, record -> replayed.add(record[1]));
+        return log;
+    }
+
+    // records of a sequence and one value, without a checksum
+    private static final class TestLog extends SegmentedLog<long[]> {
+
+        private static final RecordCodec<long[]> CODEC = new RecordCodec<>() {
+            @Override
+            public int size() {
+                return 16;
+            }
+
+            @Override
+            public long sequence(long[] record) {
+                return record[0];
+            }
+
+            @Override
+            public void write(long[] record, ByteBuffer buffer) {
+                buffer.putLong(record[0]).putLong(record[1]);
+            }
+
+            @Override
+            public long[] read(ByteBuffer buffer) {
+                return new long[]{buffer.getLong(), buffer.getLong()};
+            }
+        };
+
+        private boolean diskFails;
+
+        private TestLog(Path directory) {
+            super(directory, "test-", CODEC, true);
+        }
+
+        @Override
+        protected void force(FileChannel channel) throws IOException {
+            if (diskFails) {
+                throw new IOException("disk failed");
+            }
+            super.force(channel);
+        }
+
+        private long append(long value) {
+            return append(sequence -> new long[]{sequence, value});
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.kurs.bank.common.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import pl.kurs.bank.Main;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Hibernate validates the schema built by the changelog against the entities, so a missing change fails the context
+@SpringBootTest(classes = Main.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bank-db-zywko-prod;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles({"it", "prod"})
+@AutoConfigureMockMvc
+class ProdProfileTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Test
+    void shouldServeAccountsFromMigratedSchema() throws Exception {
+        //when:
+        MvcResult result = mockMvc.perform(post("/api/v1/accounts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"SAVINGS\",\"balance\":12.5}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        //then:
+        long id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+        mockMvc.perform(get("/api/v1/accounts/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(12.5));
+        Assertions.assertEquals("validate", context.getEnvironment().getProperty("spring.jpa.hibernate.ddl-auto"));
+        List<String> changeSets = jdbcTemplate.queryForList("SELECT ID FROM DATABASECHANGELOG", String.class);
+        Assertions.assertTrue(changeSets.containsAll(List.of("001-sequences", "001-account", "001-account-slot",
+                "001-deposit-checkpoint", "001-interest-accrual-range")));
+    }
+
+    @Test
+    void shouldCreateOnlyRequestPathBeansOnStartup() {
+        //when:
+        var beanFactory = context.getBeanFactory();
+
+        //then:
+        Assertions.assertFalse(beanFactory.getBeanDefinition("accountService").isLazyInit());
+        Assertions.assertFalse(beanFactory.getBeanDefinition("accountController").isLazyInit());
+        Assertions.assertTrue(beanFactory.getBeanDefinition("accountQueryService").isLazyInit());
+        Assertions.assertTrue(beanFactory.getBeanDefinition("interestAccrualController").isLazyInit());
+    }
+}